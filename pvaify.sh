@@ -10,7 +10,7 @@ fi
 
 if [ -r $JAR ]
 then
-    java -jar $JAR "$@" 
+    java $JAVA_OPTS -jar $JAR "$@" 
 else
     # Use IDE-provided classes and dependencies
     echo "Using development version"
@@ -33,6 +33,6 @@ else
 
     echo $CP
 
-    java -cp $CP org.phoebus.pvaify.Main "$@"
+    java $JAVA_OPTS -cp $CP org.phoebus.pvaify.Main "$@"
 fi
 
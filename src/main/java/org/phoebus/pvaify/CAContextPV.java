@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+import org.phoebus.pv.PV;
+import org.phoebus.pv.ca.DBRHelper;
+
+import gov.aps.jca.Channel;
+import gov.aps.jca.Context;
+import gov.aps.jca.Monitor;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.event.AccessRightsEvent;
+import gov.aps.jca.event.AccessRightsListener;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+
+/** CA {@link PV} in one of the {@link CAContexts}
+ *
+ *  Like the PV pool's CA PV, it reads the meta data once
+ *  when connected and then subscribes to time-stamped values,
+ *  but it uses a given context and monitor mask.
+ *  When the mask includes PROPERTY, meta data changes are
+ *  received via a separate subscription and followed by
+ *  a value read, so the forwarded value has the new meta data.
+ *
+ *  @author agent
+ */
+class CAContextPV extends PV implements ConnectionListener, AccessRightsListener, MonitorListener
+{
+    private final Context context;
+    private final int mask;
+    private final Channel channel;
+
+    /** Control meta data, read on first connection */
+    private volatile DBR metadata = null;
+
+    /** Value subscription, kept across re-connects. SYNC on this */
+    private Monitor monitor = null;
+
+    /** Meta data subscription for PROPERTY mask, kept across re-connects. SYNC on this */
+    private Monitor property_monitor = null;
+
+    /** Was value or meta data subscription created? SYNC on this */
+    private boolean subscribed = false;
+
+    /** @param context CA client context
+     *  @param name Channel name
+     *  @param mask Monitor mask
+     *  @throws Exception on error
+     */
+    CAContextPV(final Context context, final String name, final int mask) throws Exception
+    {
+        super(name);
+        this.context = context;
+        this.mask = mask;
+        channel = context.createChannel(name, this);
+        // Listener stays registered across re-connects
+        channel.addAccessRightsListener(this);
+        context.flushIO();
+    }
+
+    /** @return Request plain DBR type for the channel? */
+    private boolean isPlain()
+    {
+        return getName().endsWith(".RTYP");
+    }
+
+    @Override
+    public void connectionChanged(final ConnectionEvent ev)
+    {
+        if (! ev.isConnected())
+        {
+            notifyListenersOfDisconnect();
+            return;
+        }
+        try
+        {
+            notifyListenersOfPermissions(! channel.getWriteAccess());
+            // Read meta data, then subscribe
+            channel.get(DBRHelper.getCtrlType(isPlain(), channel.getFieldType()), 1, get ->
+            {
+                if (get.getStatus().isSuccessful())
+                    metadata = get.getDBR();
+                subscribe();
+            });
+            context.flushIO();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot handle connection of " + getName(), ex);
+        }
+    }
+
+    private void subscribe()
+    {
+        try
+        {
+            synchronized (this)
+            {
+                // CA client re-subscribes after re-connect
+                if (subscribed)
+                    return;
+                subscribed = true;
+                final int value_mask = mask & ~Monitor.PROPERTY;
+                if (value_mask != 0)
+                {
+                    final DBRType type = DBRHelper.getTimeType(isPlain(), channel.getFieldType());
+                    monitor = channel.addMonitor(type, channel.getElementCount(), value_mask, this);
+                }
+                if ((mask & Monitor.PROPERTY) != 0)
+                    property_monitor = channel.addMonitor(DBRHelper.getCtrlType(isPlain(), channel.getFieldType()), 1,
+                                                          Monitor.PROPERTY, this::propertyChanged);
+            }
+            context.flushIO();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot subscribe to " + getName(), ex);
+        }
+    }
+
+    @Override
+    public void accessRightsChanged(final AccessRightsEvent ev)
+    {
+        notifyListenersOfPermissions(! ev.getWriteAccess());
+    }
+
+    @Override
+    public void monitorChanged(final MonitorEvent ev)
+    {
+        if (ev.getStatus().isSuccessful())
+            notifyValue(ev.getDBR());
+    }
+
+    private void notifyValue(final DBR dbr)
+    {
+        try
+        {
+            notifyListenersOfValue(DBRHelper.decodeValue(channel.getElementCount() != 1, metadata, dbr));
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.FINE, "Cannot decode value of " + getName(), ex);
+        }
+    }
+
+    /** Update meta data, then read and forward the value with the new meta data */
+    private void propertyChanged(final MonitorEvent ev)
+    {
+        if (! ev.getStatus().isSuccessful())
+            return;
+        metadata = ev.getDBR();
+        try
+        {
+            channel.get(DBRHelper.getTimeType(isPlain(), channel.getFieldType()), channel.getElementCount(), get ->
+            {
+                if (get.getStatus().isSuccessful())
+                    notifyValue(get.getDBR());
+            });
+            context.flushIO();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.FINE, "Cannot read " + getName() + " after property change", ex);
+        }
+    }
+
+    @Override
+    public Future<VType> asyncRead() throws Exception
+    {
+        final CompletableFuture<VType> result = new CompletableFuture<>();
+        channel.get(DBRHelper.getTimeType(isPlain(), channel.getFieldType()), channel.getElementCount(), get ->
+        {
+            try
+            {
+                if (! get.getStatus().isSuccessful())
+                    throw new Exception("Read failed for " + getName() + ": " + get.getStatus());
+                result.complete(DBRHelper.decodeValue(channel.getElementCount() != 1, metadata, get.getDBR()));
+            }
+            catch (Exception ex)
+            {
+                result.completeExceptionally(ex);
+            }
+        });
+        context.flushIO();
+        return result;
+    }
+
+    /** @param new_value Value as provided by {@link DataUtil#getWriteValue} */
+    @Override
+    public void write(final Object new_value) throws Exception
+    {
+        if (new_value instanceof String val)
+            channel.put(val);
+        else if (new_value instanceof Double  ||  new_value instanceof Float)
+            channel.put(((Number) new_value).doubleValue());
+        else if (new_value instanceof Number val)
+            channel.put(val.intValue());
+        else if (new_value instanceof double[] val)
+            channel.put(val);
+        else if (new_value instanceof float[] val)
+            channel.put(val);
+        else if (new_value instanceof int[] val)
+            channel.put(val);
+        else if (new_value instanceof short[] val)
+            channel.put(val);
+        else if (new_value instanceof byte[] val)
+            channel.put(val);
+        else if (new_value instanceof long[] val)
+        {   // CA has no 64 bit integers
+            final int[] ints = new int[val.length];
+            for (int i=0; i<ints.length; ++i)
+                ints[i] = (int) val[i];
+            channel.put(ints);
+        }
+        else
+            throw new Exception("Cannot write " + new_value + " to " + getName());
+        context.flushIO();
+    }
+
+    @Override
+    protected void close()
+    {
+        try
+        {
+            channel.destroy();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.FINE, "Cannot close " + getName(), ex);
+        }
+    }
+}
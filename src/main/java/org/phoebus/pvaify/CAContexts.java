@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.util.logging.Level;
+
+import org.phoebus.pv.PV;
+import org.phoebus.pv.ca.JCA_Preferences;
+
+import gov.aps.jca.Context;
+import gov.aps.jca.JCALibrary;
+
+/** Several CA client contexts
+ *
+ *  The PV pool uses a single CA client context for all PVs,
+ *  so one set of JCA threads and one TCP connection per IOC
+ *  handle all updates.
+ *  Here, PVs are assigned to one of several contexts by name hash.
+ *  Each context has its own TCP connections and threads,
+ *  so updates for PVs in different contexts are decoded in parallel.
+ *
+ *  <p>Contexts are configured via the same
+ *  <code>org.phoebus.pv.ca</code> preferences as the PV pool.
+ *
+ *  @author agent
+ */
+class CAContexts
+{
+    private final Context[] contexts;
+
+    /** Default monitor mask from <code>org.phoebus.pv.ca/monitor_mask</code> */
+    private final int default_mask;
+
+    /** @param count Number of contexts
+     *  @throws Exception on error
+     */
+    CAContexts(final int count) throws Exception
+    {
+        // Installs the CA address list etc. as JCA properties
+        final JCA_Preferences prefs = JCA_Preferences.getInstance();
+        default_mask = prefs.getMonitorMask();
+        contexts = new Context[count];
+        for (int i=0; i<count; ++i)
+            contexts[i] = JCALibrary.getInstance().createContext(JCALibrary.CHANNEL_ACCESS_JAVA);
+        logger.log(Level.CONFIG, "Using " + count + " CA client contexts");
+    }
+
+    /** @return Number of contexts */
+    int getCount()
+    {
+        return contexts.length;
+    }
+
+    /** Create PV with default monitor mask
+     *  @param name CA channel name
+     *  @return {@link PV}, to be released via {@link #releasePV(PV)}
+     *  @throws Exception on error
+     */
+    PV createPV(final String name) throws Exception
+    {
+        return createPV(name, default_mask);
+    }
+
+    /** @param name CA channel name
+     *  @param mask Monitor mask, combination of <code>gov.aps.jca.Monitor.VALUE</code> etc.
+     *  @return {@link PV}, to be released via {@link #releasePV(PV)}
+     *  @throws Exception on error
+     */
+    PV createPV(final String name, final int mask) throws Exception
+    {
+        final Context context = contexts[Math.floorMod(name.hashCode(), contexts.length)];
+        return new CAContextPV(context, name, mask);
+    }
+
+    /** @param pv {@link PV} created by this class */
+    void releasePV(final PV pv)
+    {
+        ((CAContextPV) pv).close();
+    }
+
+    /** Close all contexts */
+    void close()
+    {
+        for (Context context : contexts)
+        {
+            try
+            {
+                context.destroy();
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot close CA client context", ex);
+            }
+        }
+    }
+}
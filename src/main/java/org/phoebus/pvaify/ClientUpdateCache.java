@@ -10,10 +10,16 @@ package org.phoebus.pvaify;
 
 import static org.phoebus.pvaify.Proxy.logger;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
+import org.epics.pva.data.PVAStructure;
+import org.epics.vtype.Alarm;
 import org.epics.vtype.VType;
 
 /** Cache for updates received on client side
@@ -27,10 +33,53 @@ class ClientUpdateCache
     private final Map<ProxiedPV, VType> cache = new HashMap<>();
     private final Map<ProxiedPV, VType> save_copy = new HashMap<>();
 
+    /** Values deferred by the throttle until they are due, only accessed by main loop */
+    private final DeferredUpdates<ProxiedPV, VType> deferred = new DeferredUpdates<>();
+
+    /** Update in the priority lane */
+    private record Update(ProxiedPV pv, VType value)
+    {
+    }
+
+    /** Priority updates in order of arrival, never coalesced, SYNC on cache */
+    private final List<Update> priority = new ArrayList<>();
+    private final List<Update> save_priority = new ArrayList<>();
+
+    /** Last priority update queued for each PV until it has been sent, SYNC on cache */
+    private final Map<ProxiedPV, Update> last_priority = new HashMap<>();
+
+    /** Counter for updates sent via the priority lane */
+    final AtomicInteger priority_counter = new AtomicInteger();
+
+    /** Copies of structures received from PVA client side in pass-through mode, SYNC on cache.
+     *  Further updates received before the next pass only copy their changed elements into the copy.
+     */
+    private final Map<ProxiedPV, PVAStructure> structures = new HashMap<>();
+    private final Map<ProxiedPV, PVAStructure> save_structures = new HashMap<>();
+
     // TODO Handle scalars different from arrays?
     //      Prevent array updates from delaying scalar updates?
 
-    /** @param proxy_pv {@link ProxiedPV} that received a client side update
+    /** PVs of the current batch, only accessed by main loop */
+    private final List<ProxiedPV> batch_pvs = new ArrayList<>();
+
+    /** {@link VType} or {@link PVAStructure} for each PV of the batch */
+    private final List<Object> batch_values = new ArrayList<>();
+
+    /** PVs of the batch with prepared updates */
+    private final List<ProxiedPV> prepared = new ArrayList<>();
+
+    /** Add update
+     *
+     *  Alarm transitions take the priority lane.
+     *  Every priority update is sent out, in order,
+     *  as soon as the main loop can handle it.
+     *  A value is compared with the last queued priority update of the PV,
+     *  or with the data last sent out when none is queued,
+     *  so each PV queues all its transitions, and only those.
+     *  Other updates use the throttled lane.
+     *
+     *  @param proxy_pv {@link ProxiedPV} that received a client side update
      *  @param value Received client side value
      */
     void add(final ProxiedPV proxy_pv, final VType value)
@@ -38,30 +87,243 @@ class ClientUpdateCache
         final VType previous;
         synchronized (cache)
         {
+            final Update last = last_priority.get(proxy_pv);
+            if (last != null  ?  !isSameAlarm(last.value(), value)
+                              :  proxy_pv.isAlarmChanged(value))
+            {
+                // Drop older value that's still waiting in the throttled lane
+                cache.remove(proxy_pv);
+                final Update update = new Update(proxy_pv, value);
+                priority.add(update);
+                last_priority.put(proxy_pv, update);
+                cache.notifyAll();
+                return;
+            }
             previous = cache.put(proxy_pv, value);
         }
         if (previous != null)
-            logger.log(Level.FINE, () -> proxy_pv.getName() + " client side overrun");
+            logger.log(Level.FINER, () -> proxy_pv.getName() + " client side overrun");
+    }
+
+    /** @param a Value
+     *  @param b Other value
+     *  @return Do values have the same alarm severity and status?
+     */
+    private static boolean isSameAlarm(final VType a, final VType b)
+    {
+        final Alarm alarm_a = Alarm.alarmOf(a), alarm_b = Alarm.alarmOf(b);
+        return alarm_a.getSeverity() == alarm_b.getSeverity()  &&
+               alarm_a.getStatus() == alarm_b.getStatus();
+    }
+
+    /** Wait until the next pass, sending priority updates as they arrive
+     *  and deferred values when they are due
+     *
+     *  Called by the main loop, so these updates are
+     *  never handled in parallel with a pass.
+     *
+     *  @param until End of wait [millis]
+     *  @throws InterruptedException on interruption
+     */
+    void processPriority(final long until) throws InterruptedException
+    {
+        // Return at 'until' even if priority updates keep arriving.
+        // Remaining ones are sent at the start of the pass
+        long now;
+        while ((now = System.currentTimeMillis()) < until)
+        {
+            synchronized (cache)
+            {
+                if (priority.isEmpty())
+                {
+                    final long wake = Math.min(until, deferred.getNextDue());
+                    if (wake > now)
+                    {
+                        cache.wait(wake - now);
+                        now = System.currentTimeMillis();
+                    }
+                }
+                save_priority.addAll(priority);
+                priority.clear();
+            }
+            sendPriority();
+            processDue(now);
+        }
+    }
+
+    /** Send priority updates taken from the priority lane */
+    private void sendPriority()
+    {
+        if (save_priority.isEmpty())
+            return;
+        for (Update update : save_priority)
+        {
+            // Priority update replaces older deferred value
+            deferred.remove(update.pv());
+            if (update.pv().prepareUpdate(update.value()))
+            {
+                update.pv().commitUpdate();
+                priority_counter.incrementAndGet();
+            }
+        }
+        synchronized (cache)
+        {
+            // Following values are again compared with the sent data
+            for (Update update : save_priority)
+                if (last_priority.get(update.pv()) == update)
+                    last_priority.remove(update.pv());
+        }
+        save_priority.clear();
+    }
+
+    /** Send deferred values that are due between passes
+     *  @param now Current time [millis]
+     */
+    private void processDue(final long now)
+    {
+        deferred.pollDue(now, save_copy::put);
+        if (save_copy.isEmpty())
+            return;
+        synchronized (cache)
+        {
+            // Use newer value that arrived since the last pass
+            for (Map.Entry<ProxiedPV, VType> entry : save_copy.entrySet())
+            {
+                final VType newer = cache.remove(entry.getKey());
+                if (newer != null)
+                    entry.setValue(newer);
+            }
+        }
+        save_copy.forEach((proxy_pv, value) -> addToBatch(proxy_pv, value));
+        save_copy.clear();
+        processBatch();
+    }
+
+    /** @param proxy_pv {@link ProxiedPV} that received a client side update
+     *  @param data Received client side data, will be copied
+     *  @param changes Changed elements of the data, <code>null</code> to copy all
+     *  @throws Exception on error
+     */
+    void add(final ProxiedPV proxy_pv, final PVAStructure data, final BitSet changes) throws Exception
+    {
+        // Updates arrive on the PVA client thread, while the 'disconnected' copy
+        // is added from the channel state thread.
+        // Checking for a pending copy and replacing it happens under the PV's lock,
+        // so an older update cannot replace a copy that was added meanwhile.
+        // The deep copy is made outside of the cache lock.
+        synchronized (proxy_pv)
+        {
+            synchronized (cache)
+            {
+                final PVAStructure pending = structures.get(proxy_pv);
+                if (pending != null  &&  changes != null  &&  !changes.get(0))
+                {   // Merge changes into copy that's waiting for the next pass
+                    DataUtil.copyChanges(data, changes, pending);
+                    logger.log(Level.FINER, () -> proxy_pv.getName() + " client side overrun");
+                    return;
+                }
+            }
+            final PVAStructure copy = data.cloneData();
+            synchronized (cache)
+            {
+                structures.put(proxy_pv, copy);
+            }
+        }
     }
 
-    /** Process accumulated valued */
-    public void process()
+    /** Process accumulated valued
+     *  @param array_throttle_ms Throttle for large arrays [millis], 0 to disable
+     */
+    public void process(final int array_throttle_ms)
     {
+        final ProxyEvents.CacheProcess event = new ProxyEvents.CacheProcess();
+        event.begin();
+        final int size;
         synchronized (cache)
         {
+            save_priority.addAll(priority);
+            priority.clear();
             save_copy.putAll(cache);
             cache.clear();
+            save_structures.putAll(structures);
+            structures.clear();
         }
+        size = save_copy.size() + save_structures.size();
 
-        save_copy.forEach(this::process);
+        // Priority updates that arrived after processPriority returned
+        // are older than throttled values for the same PV
+        sendPriority();
+
+        final long now = System.currentTimeMillis();
+        save_copy.forEach((proxy_pv, value) ->
+        {
+            final long due = proxy_pv.getDueTime(value, now, array_throttle_ms);
+            if (due > now)
+                deferred.defer(proxy_pv, value, due);
+            else
+            {   // Newer value replaces older deferred value
+                deferred.remove(proxy_pv);
+                addToBatch(proxy_pv, value);
+            }
+        });
         save_copy.clear();
+        // Deferred values stay out of the cache until due
+        deferred.pollDue(now, (proxy_pv, value) -> addToBatch(proxy_pv, value));
+        final int deferred_count = deferred.size();
+        save_structures.forEach((proxy_pv, data) -> addToBatch(proxy_pv, data));
+        save_structures.clear();
+        processBatch();
+
+        if (event.shouldCommit())
+        {
+            event.size = size;
+            event.deferred = deferred_count;
+            event.commit();
+        }
     }
 
-    /** @param proxy_pv Proxy where sender side should be updated
-     *  @param value Value to send out on server side
+    /** @param proxy_pv {@link ProxiedPV} to update
+     *  @param value {@link VType} or {@link PVAStructure}
      */
-    private void process(final ProxiedPV proxy_pv, final VType value)
+    private void addToBatch(final ProxiedPV proxy_pv, final Object value)
     {
-        proxy_pv.updateServerSide(value);
+        batch_pvs.add(proxy_pv);
+        batch_values.add(value);
+    }
+
+    /** Update server side for the batch
+     *
+     *  Updates are handled in two phases.
+     *  First, the data of all server PVs is prepared,
+     *  which includes the potentially expensive conversion of client side values.
+     *  Then all prepared updates are committed back-to-back,
+     *  so the PVA server can send them to each TCP connection
+     *  in as few network writes as possible.
+     */
+    private void processBatch()
+    {
+        try
+        {
+            // Prepare ..
+            final int N = batch_pvs.size();
+            for (int i=0; i<N; ++i)
+            {
+                final ProxiedPV pv = batch_pvs.get(i);
+                final boolean commit = batch_values.get(i) instanceof VType value
+                                     ? pv.prepareUpdate(value)
+                                     : pv.prepareUpdate((PVAStructure) batch_values.get(i));
+                if (commit)
+                    prepared.add(pv);
+            }
+            // .. then commit
+            for (ProxiedPV pv : prepared)
+                pv.commitUpdate();
+        }
+        finally
+        {
+            batch_pvs.clear();
+            batch_values.clear();
+            prepared.clear();
+        }
     }
 }
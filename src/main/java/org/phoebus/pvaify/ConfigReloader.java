@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import org.epics.pva.acf.AccessConfig;
+import org.epics.pva.acf.AccessConfigParser;
+import org.epics.pva.pvlist.PVListFile;
+
+/** Reload pvlist and access security files when they change
+ *
+ *  Polled from the main loop.
+ *  A file is only re-read once its modification time
+ *  has been stable for one check period, so we don't
+ *  load a file that an editor is still writing.
+ *
+ *  @author agent
+ */
+class ConfigReloader
+{
+    /** Watched file with last known modification time */
+    private static class WatchedFile
+    {
+        final Path path;
+        long loaded, pending;
+
+        WatchedFile(final String filename)
+        {
+            path = Path.of(filename);
+            loaded = pending = getModified();
+        }
+
+        long getModified()
+        {
+            try
+            {
+                return Files.getLastModifiedTime(path).toMillis();
+            }
+            catch (Exception ex)
+            {   // File is missing while being replaced?
+                return loaded;
+            }
+        }
+
+        /** @return Has file changed and then remained stable since last check? */
+        boolean isChanged()
+        {
+            final long modified = getModified();
+            if (modified == loaded)
+                return false;
+            if (modified != pending)
+            {   // Changed, check again next time
+                pending = modified;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private final Proxy proxy;
+
+    /** Endpoint that uses the files */
+    private final Endpoint endpoint;
+
+    /** Watched files or <code>null</code> */
+    private final WatchedFile pvlist_file, acf_file;
+
+    /** Time of last check [millis] */
+    private long last_check = System.currentTimeMillis();
+
+    /** @param proxy Proxy to reconfigure
+     *  @param endpoint Endpoint with the pvlist and access security files to watch
+     */
+    ConfigReloader(final Proxy proxy, final Endpoint endpoint)
+    {
+        this.proxy = proxy;
+        this.endpoint = endpoint;
+        final String pvlist_filename = endpoint.config.pvlist_file();
+        final String acf_filename = endpoint.config.acf_file();
+        pvlist_file = pvlist_filename == null ? null : new WatchedFile(pvlist_filename);
+        acf_file = acf_filename == null ? null : new WatchedFile(acf_filename);
+    }
+
+    /** Check files, reload and reconfigure the proxy when they changed
+     *  @param now Current time [millis]
+     */
+    void check(final long now)
+    {
+        if (now - last_check < ProxyPreferences.config_check_sec * 1000)
+            return;
+        last_check = now;
+
+        final boolean pvlist_changed = pvlist_file != null  &&  pvlist_file.isChanged();
+        final boolean acf_changed = acf_file != null  &&  acf_file.isChanged();
+        if (! (pvlist_changed || acf_changed))
+            return;
+
+        PVListFile pvlist = null;
+        AccessConfig access = null;
+        try
+        {
+            if (pvlist_changed)
+            {
+                pvlist = new PVListFile(pvlist_file.path.toString());
+                logger.log(Level.CONFIG, "Reloaded " + endpoint.config.name() + " PVList rules:\n" + pvlist);
+            }
+            if (acf_changed)
+            {
+                access = new AccessConfigParser().parse(acf_file.path.toString());
+                logger.log(Level.CONFIG, "Reloaded " + endpoint.config.name() + " ACF rules:\n" + access);
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot reload configuration of " + endpoint + ", keeping previous pvlist and ACF", ex);
+            pvlist = null;
+            access = null;
+        }
+        finally
+        {   // Don't re-try a broken file until it changes again
+            if (pvlist_changed)
+                pvlist_file.loaded = pvlist_file.pending;
+            if (acf_changed)
+                acf_file.loaded = acf_file.pending;
+        }
+
+        if (pvlist != null  ||  access != null)
+            proxy.reconfigure(endpoint, pvlist, access);
+    }
+}
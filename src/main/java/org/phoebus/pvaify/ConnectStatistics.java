@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.phoebus.pvaify.ConnectTiming.Phase;
+
+/** Aggregated connection timing of proxied PVs
+ *
+ *  Keeps a histogram of the time spent in each connection
+ *  phase and the most recent completed connections.
+ *
+ *  <p>Once a proxied PV replied to its searches, it hands its
+ *  timing to this class, where it awaits the first subscriber,
+ *  so the PV itself does not need to hold on to the timing.
+ *
+ *  @author agent
+ */
+class ConnectStatistics
+{
+    /** Histogram buckets are powers of 2 milliseconds, last bucket collects all that's larger */
+    static final int BUCKETS = 18;
+
+    /** Number of recent connections to keep */
+    private static final int RECENT = 200;
+
+    /** Maximum number of connections that await their first subscriber */
+    static final int MAX_PENDING = 10000;
+
+    /** Info about one completed connection */
+    record Connect(String name, double total_ms, double[] step_ms, boolean array_reconnect)
+    {
+    }
+
+    /** Histogram by step (Phase ordinal, 0 for 'Search' is used for the total) and bucket.
+     *  SYNC on this
+     */
+    private final int[][] histogram = new int[ConnectTiming.PHASES.length][BUCKETS];
+
+    /** Ring buffer of recent connections. SYNC on this */
+    private final Connect[] recent = new Connect[RECENT];
+
+    /** Next index in `recent` */
+    private int next = 0;
+
+    /** Connection awaiting the first subscriber
+     *  @param timing Connection timing
+     *  @param since_ms Time when search replies were sent [millis]
+     */
+    private record Pending(ConnectTiming timing, long since_ms)
+    {
+    }
+
+    /** Connections awaiting the first subscriber by PV name, oldest first. SYNC on this */
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    /** @param ms Milliseconds
+     *  @return Histogram bucket
+     */
+    static int getBucket(final double ms)
+    {
+        int bucket = 0;
+        double limit = 1.0;
+        while (ms >= limit  &&  bucket < BUCKETS-1)
+        {
+            ++bucket;
+            limit *= 2;
+        }
+        return bucket;
+    }
+
+    /** @param bucket Histogram bucket
+     *  @return Label for the bucket
+     */
+    static String getBucketLabel(final int bucket)
+    {
+        if (bucket >= BUCKETS-1)
+            return ">=" + (1 << (BUCKETS-2));
+        return "<" + (1 << bucket);
+    }
+
+    /** @param name Name of PV that completed its connection
+     *  @param timing Connection timing
+     */
+    void add(final String name, final ConnectTiming timing)
+    {
+        final double total = timing.getTotalMillis();
+        final double[] steps = new double[ConnectTiming.PHASES.length - 1];
+        for (int i=0; i<steps.length; ++i)
+            steps[i] = timing.getStepMillis(ConnectTiming.PHASES[i+1]);
+        final Connect connect = new Connect(name, total, steps, timing.skippedDisconnect());
+
+        synchronized (this)
+        {
+            ++histogram[Phase.Search.ordinal()][getBucket(total)];
+            for (int i=0; i<steps.length; ++i)
+                ++histogram[i+1][getBucket(steps[i])];
+            recent[next] = connect;
+            next = (next + 1) % RECENT;
+        }
+    }
+
+    /** @param name Name of PV that replied to its searches
+     *  @param timing Connection timing, complete up to the 'Reply' phase
+     */
+    synchronized void awaitSubscriber(final String name, final ConnectTiming timing)
+    {
+        pending.put(name, new Pending(timing, System.currentTimeMillis()));
+        if (pending.size() > MAX_PENDING)
+        {   // Report oldest without 'Subscribe'
+            final Iterator<Map.Entry<String, Pending>> oldest = pending.entrySet().iterator();
+            final Map.Entry<String, Pending> entry = oldest.next();
+            oldest.remove();
+            add(entry.getKey(), entry.getValue().timing());
+        }
+    }
+
+    /** Complete the timing of connections that have a subscriber
+     *
+     *  Called by the main loop.
+     *  Connections without a subscriber after the timeout
+     *  are reported without the 'Subscribe' phase.
+     *
+     *  @param is_subscribed Check if PV with given name has a subscriber
+     *  @param now Current time [millis]
+     *  @param timeout_ms Time to wait for a subscriber [millis]
+     */
+    synchronized void checkSubscribed(final Predicate<String> is_subscribed, final long now, final long timeout_ms)
+    {
+        final Iterator<Map.Entry<String, Pending>> entries = pending.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            final Map.Entry<String, Pending> entry = entries.next();
+            final ConnectTiming timing = entry.getValue().timing();
+            if (is_subscribed.test(entry.getKey()))
+                timing.mark(Phase.Subscribe);
+            else if (now - entry.getValue().since_ms() < timeout_ms)
+                continue;
+            entries.remove();
+            add(entry.getKey(), timing);
+        }
+    }
+
+    /** @return Number of connections that await their first subscriber */
+    synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    /** @param step Phase ordinal for the time that led up to that phase, 0 for total
+     *  @return Copy of histogram counts for that step
+     */
+    synchronized int[] getHistogram(final int step)
+    {
+        return Arrays.copyOf(histogram[step], BUCKETS);
+    }
+
+    /** @param limit Maximum number of connections to return
+     *  @return Slowest recent connections, slowest first
+     */
+    List<Connect> getSlowest(final int limit)
+    {
+        final List<Connect> result = new ArrayList<>(RECENT);
+        synchronized (this)
+        {
+            for (Connect connect : recent)
+                if (connect != null)
+                    result.add(connect);
+        }
+        result.sort(Comparator.comparingDouble(Connect::total_ms).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+}
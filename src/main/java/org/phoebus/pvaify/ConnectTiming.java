@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+/** Time stamps for the connection phases of one {@link ProxiedPV}
+ *
+ *  Each phase is recorded once, the first time it's reached.
+ *  @author agent
+ */
+class ConnectTiming
+{
+    /** Connection phases, in the order they are expected to happen */
+    enum Phase
+    {
+        /** First search, which created the proxied PV */
+        Search,
+        /** Client side was started */
+        Start,
+        /** First update from client side, CA connected */
+        Connect,
+        /** First usable value from client side */
+        Value,
+        /** Server PV was created */
+        ServerPV,
+        /** Search replies were sent */
+        Reply,
+        /** First client subscribed on the server side */
+        Subscribe
+    }
+
+    /** Phases */
+    static final Phase[] PHASES = Phase.values();
+
+    /** Time stamps [System.nanoTime] by phase, 0 if not reached */
+    private final long[] nanos = new long[PHASES.length];
+
+    /** Did the client side skip a 'disconnected' value, as for array re-connects? */
+    private boolean skipped_disconnect = false;
+
+    /** Start timing with the 'Search' phase */
+    ConnectTiming()
+    {
+        nanos[Phase.Search.ordinal()] = System.nanoTime();
+    }
+
+    /** @param phase Phase that was reached
+     *  @return <code>true</code> if this was the first time we reached that phase
+     */
+    synchronized boolean mark(final Phase phase)
+    {
+        if (nanos[phase.ordinal()] != 0)
+            return false;
+        nanos[phase.ordinal()] = System.nanoTime();
+        return true;
+    }
+
+    /** Note that client side skipped an initial 'disconnected' value */
+    synchronized void markSkippedDisconnect()
+    {
+        skipped_disconnect = true;
+    }
+
+    /** @return Did the client side skip an initial 'disconnected' value? */
+    synchronized boolean skippedDisconnect()
+    {
+        return skipped_disconnect;
+    }
+
+    /** @return Is the timing complete, i.e. did a client subscribe? */
+    synchronized boolean isComplete()
+    {
+        return nanos[Phase.Subscribe.ordinal()] != 0;
+    }
+
+    /** @param phase Phase
+     *  @return Milliseconds from the previous phase to this one, or 0 if phase is not known
+     */
+    synchronized double getStepMillis(final Phase phase)
+    {
+        final int i = phase.ordinal();
+        if (i == 0  ||  nanos[i] == 0)
+            return 0.0;
+        // Find most recent earlier phase that was reached
+        int prev = i-1;
+        while (prev > 0  &&  nanos[prev] == 0)
+            --prev;
+        return (nanos[i] - nanos[prev]) / 1e6;
+    }
+
+    /** @return Milliseconds from first search to the last phase that was reached */
+    synchronized double getTotalMillis()
+    {
+        for (int i=PHASES.length-1; i>0; --i)
+            if (nanos[i] != 0)
+                return (nanos[i] - nanos[0]) / 1e6;
+        return 0.0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(String.format("%.1f ms", getTotalMillis()));
+        for (int i=1; i<PHASES.length; ++i)
+            if (nanos[i] != 0)
+                buf.append(String.format(", %s +%.1f", PHASES[i], getStepMillis(PHASES[i])));
+        if (skipped_disconnect)
+            buf.append(" (array re-connect)");
+        return buf.toString();
+    }
+}
@@ -8,8 +8,11 @@
 package org.phoebus.pvaify;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.epics.pva.data.PVAArray;
 import org.epics.pva.data.PVAByteArray;
@@ -23,6 +26,7 @@ import org.epics.pva.data.PVALongArray;
 import org.epics.pva.data.PVANumber;
 import org.epics.pva.data.PVAShortArray;
 import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStringArray;
 import org.epics.pva.data.PVAStructure;
 import org.epics.pva.data.nt.PVAAlarm;
 import org.epics.pva.data.nt.PVADisplay;
@@ -30,16 +34,28 @@ import org.epics.pva.data.nt.PVAEnum;
 import org.epics.pva.data.nt.PVAScalar;
 import org.epics.pva.data.nt.PVAScalar.Builder;
 import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
 import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
 import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
 import org.epics.vtype.Time;
 import org.epics.vtype.VByteArray;
 import org.epics.vtype.VDouble;
 import org.epics.vtype.VDoubleArray;
 import org.epics.vtype.VEnum;
 import org.epics.vtype.VFloatArray;
+import org.epics.vtype.VInt;
 import org.epics.vtype.VIntArray;
 import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
 import org.epics.vtype.VShortArray;
 import org.epics.vtype.VString;
 import org.epics.vtype.VType;
@@ -50,6 +66,32 @@ import org.phoebus.pv.PV;
  */
 public class DataUtil
 {
+    /** Enum labels, shared by all PVs with the same labels */
+    private static final ConcurrentHashMap<List<String>, String[]> enum_labels = new ConcurrentHashMap<>();
+
+    /** @param choices Enum choices
+     *  @return Shared array of enum labels, must not be modified
+     */
+    private static String[] getLabels(final List<String> choices)
+    {
+        return enum_labels.computeIfAbsent(List.copyOf(choices), c ->
+        {
+            final String[] labels = new String[c.size()];
+            for (int i=0; i<labels.length; ++i)
+                labels[i] = c.get(i).intern();
+            return labels;
+        });
+    }
+
+    /** @param display {@link Display}
+     *  @return Units, shared by all PVs with the same units
+     */
+    private static String getUnits(final Display display)
+    {
+        final String units = display.getUnit();
+        return units == null ? "" : units.intern();
+    }
+
     /** @param o Object
      *  @param max_len Maximum string length
      *  @return String representation of the object
@@ -94,8 +136,7 @@ public class DataUtil
             builder = PVAScalar.stringScalarBuilder(val.getValue());
         else if (value instanceof VEnum val)
         {
-            final List<String> choices = val.getDisplay().getChoices();
-            final String[] labels = choices.toArray(new String[choices.size()]);
+            final String[] labels = getLabels(val.getDisplay().getChoices());
             builder = new Builder<PVAEnum>()
                       .value(new PVAEnum(PVAScalar.VALUE_NAME_STRING,
                                          val.getIndex(), labels));
@@ -140,7 +181,7 @@ public class DataUtil
                 new PVADisplay(display.getDisplayRange().getMinimum(),
                                display.getDisplayRange().getMaximum(),
                                "",
-                               display.getUnit(),
+                               getUnits(display),
                                display.getFormat().getMinimumFractionDigits(),
                                PVADisplay.Form.DEFAULT));
 
@@ -151,6 +192,10 @@ public class DataUtil
     }
 
     /** Update PVA 'display' from VType
+     *
+     *  Updates display limits, units and precision,
+     *  so changes received via DBE_PROPERTY reach the clients.
+     *
      *  @param data {@link PVAStructure} to update
      *  @param new_value {@link VType} from which to update
      *  @throws Exception on error
@@ -165,15 +210,24 @@ public class DataUtil
         if (data_display == null)
             return;
 
+        PVADouble limit = data_display.get("limitLow");
+        if (limit != null)
+            limit.set(display.getDisplayRange().getMinimum());
+        limit = data_display.get("limitHigh");
+        if (limit != null)
+            limit.set(display.getDisplayRange().getMaximum());
+
         PVAString txt = data_display.get("units");
         if (txt != null)
-            txt.set(display.getUnit());
+        {
+            final String units = display.getUnit();
+            if (! Objects.equals(units, txt.get()))
+                txt.set(getUnits(display));
+        }
 
         PVAInt dec = data_display.get("precision");
         if (dec != null)
             dec.set(display.getFormat().getMinimumFractionDigits());
-
-        // TODO Update more elements...
     }
 
     /** Update PVA from VType
@@ -209,10 +263,13 @@ public class DataUtil
             value.setValue(val.getValue().intValue());
         else if (new_value instanceof VString val)
             value.setValue(val.getValue());
-        else if (new_value instanceof VEnum val)
+        else if (new_value instanceof VEnum val  &&  value instanceof PVAStructure enm)
         {
-            // TODO Update enum labels?
-            value.setValue(val.getIndex());
+            enm.get("index").setValue(val.getIndex());
+            // Labels may change via DBE_PROPERTY
+            final PVAStringArray choices = enm.get("choices");
+            if (! Arrays.asList(choices.get()).equals(val.getDisplay().getChoices()))
+                choices.set(getLabels(val.getDisplay().getChoices()));
         }
         else if (new_value instanceof VDoubleArray val)
             value.setValue(val.getData().toArray(new double[val.getSizes().getInt(0)]));
@@ -231,40 +288,233 @@ public class DataUtil
         updateDisplay(data, new_value);
     }
 
-    /** Write data received on server side back to client
-     *  @param client_pv Client side (CA) PV
+    /** @param min Display range minimum
+     *  @param max Display range maximum
+     *  @param units Units
+     *  @param precision Precision
+     *  @return {@link Display}
+     */
+    public static Display createDisplay(final double min, final double max, final String units, final int precision)
+    {
+        final Range range = Range.of(min, max);
+        return Display.of(range, Range.undefined(), Range.undefined(), range,
+                          units, NumberFormats.precisionFormat(precision));
+    }
+
+    /** Check if PVA data can be updated with VType
+     *  @param data {@link PVAStructure} created for an earlier value
+     *  @param value {@link VType}
+     *  @return <code>true</code> if value has the same type as the data
+     */
+    public static boolean isCompatible(final PVAStructure data, final VType value)
+    {
+        final PVAData data_value = data.get("value");
+        if (value instanceof VDouble)
+            return data_value instanceof PVADouble;
+        if (value instanceof VNumber)
+            return data_value instanceof PVAInt;
+        if (value instanceof VString)
+            return data_value instanceof PVAString;
+        // Enum labels are updated, so they don't need to match
+        if (value instanceof VEnum)
+            return data_value instanceof PVAStructure enm  &&  enm.get("choices") instanceof PVAStringArray;
+        if (value instanceof VDoubleArray)
+            return data_value instanceof PVADoubleArray;
+        if (value instanceof VFloatArray)
+            return data_value instanceof PVAFloatArray;
+        if (value instanceof VIntArray)
+            return data_value instanceof PVAIntArray;
+        if (value instanceof VShortArray)
+            return data_value instanceof PVAShortArray;
+        if (value instanceof VByteArray)
+            return data_value instanceof PVAByteArray;
+        return false;
+    }
+
+    /** @param data {@link PVAStructure} that was last sent out
+     *  @param new_value {@link VType} received on client side
+     *  @return <code>true</code> if alarm severity differs
+     */
+    public static boolean isSeverityChanged(final PVAStructure data, final VType new_value)
+    {
+        final PVAStructure alarm = data.get("alarm");
+        return ((PVANumber) alarm.get(1)).getNumber().intValue() != Alarm.alarmOf(new_value).getSeverity().ordinal();
+    }
+
+    /** @param data {@link PVAStructure} that was last sent out
+     *  @param new_value {@link VType} received on client side
+     *  @return <code>true</code> if alarm severity or status differ
+     */
+    public static boolean isAlarmChanged(final PVAStructure data, final VType new_value)
+    {
+        final Alarm alarm = Alarm.alarmOf(new_value);
+        final PVAStructure data_alarm = data.get("alarm");
+        return ((PVANumber) data_alarm.get(1)).getNumber().intValue() != alarm.getSeverity().ordinal()  ||
+               ((PVANumber) data_alarm.get(2)).getNumber().intValue() != alarm.getStatus().ordinal();
+    }
+
+    /** Copy the changed elements of received PVA data
+     *
+     *  Each changed element is cloned, since the PVA client
+     *  re-uses the received data for the next update.
+     *
+     *  @param source Data received from PVA client
+     *  @param changes Changed elements of the source, as provided by the PVA client
+     *  @param target Earlier copy of the source with the same structure, updated
+     *  @throws Exception on error
+     */
+    public static void copyChanges(final PVAStructure source, final BitSet changes, final PVAStructure target) throws Exception
+    {
+        // Bit 0 would be the complete structure, handled by caller.
+        // For a changed sub-structure, its elements are copied again
+        // if their bits are also set, which is harmless
+        for (int i = changes.nextSetBit(1);  i >= 0;  i = changes.nextSetBit(i+1))
+        {
+            final PVAData element = target.get(i);
+            element.setValue(source.get(i).cloneData());
+        }
+    }
+
+    /** Mark PVA data as disconnected, undefined
+     *  @param data {@link PVAStructure} to update
+     *  @throws Exception on error
+     */
+    public static void setDisconnected(final PVAStructure data) throws Exception
+    {
+        final PVAStructure alarm = data.get("alarm");
+        alarm.get(1).setValue(AlarmSeverity.INVALID.ordinal());
+        alarm.get(2).setValue(AlarmStatus.UNDEFINED.ordinal());
+        alarm.get(3).setValue("Disconnected");
+    }
+
+    /** Estimated memory used by the structure, alarm, time stamp etc. of PVA data [bytes] */
+    private static final int STRUCTURE_BYTES = 500;
+
+    /** Estimate memory held by PVA data
+     *  @param data {@link PVAStructure}, may be <code>null</code>
+     *  @return Approximate number of bytes
+     */
+    public static long estimateBytes(final PVAStructure data)
+    {
+        if (data == null)
+            return 0;
+        final PVAData value = data.get("value");
+        if (value instanceof PVADoubleArray val)
+            return STRUCTURE_BYTES + 8L * val.get().length;
+        if (value instanceof PVALongArray val)
+            return STRUCTURE_BYTES + 8L * val.get().length;
+        if (value instanceof PVAFloatArray val)
+            return STRUCTURE_BYTES + 4L * val.get().length;
+        if (value instanceof PVAIntArray val)
+            return STRUCTURE_BYTES + 4L * val.get().length;
+        if (value instanceof PVAShortArray val)
+            return STRUCTURE_BYTES + 2L * val.get().length;
+        if (value instanceof PVAByteArray val)
+            return STRUCTURE_BYTES + val.get().length;
+        if (value instanceof PVAString val  &&  val.get() != null)
+            return STRUCTURE_BYTES + 2L * val.get().length();
+        return STRUCTURE_BYTES;
+    }
+
+    /** Create VType from PVA data
+     *  @param data {@link PVAStructure} created by this utility
+     *  @return {@link VType}
+     *  @throws Exception on error
+     */
+    public static VType toVType(final PVAStructure data) throws Exception
+    {
+        PVAStructure sub = data.get("timeStamp");
+        final Time time = Time.of(Instant.ofEpochSecond(((PVANumber) sub.get(1)).getNumber().longValue(),
+                                                        ((PVANumber) sub.get(2)).getNumber().intValue()));
+
+        sub = data.get("alarm");
+        final Alarm alarm = Alarm.of(AlarmSeverity.values()[((PVANumber) sub.get(1)).getNumber().intValue()],
+                                     AlarmStatus.values()[((PVANumber) sub.get(2)).getNumber().intValue()],
+                                     ((PVAString) sub.get(3)).get());
+
+        Display display = Display.none();
+        sub = data.get("display");
+        if (sub != null)
+        {
+            final PVADouble low = sub.get("limitLow"), high = sub.get("limitHigh");
+            final PVAString units = sub.get("units");
+            final PVAInt precision = sub.get("precision");
+            display = createDisplay(low == null ? Double.NaN : low.get(),
+                                    high == null ? Double.NaN : high.get(),
+                                    units == null ? "" : units.get(),
+                                    precision == null ? 0 : precision.get());
+        }
+
+        final PVAData value = data.get("value");
+        if (value instanceof PVADouble val)
+            return VDouble.of(val.get(), alarm, time, display);
+        if (value instanceof PVAInt val)
+            return VInt.of(val.get(), alarm, time, display);
+        if (value instanceof PVAString val)
+            return VString.of(val.get(), alarm, time);
+        if (value instanceof PVAStructure val  &&  val.getStructureName().equals("enum_t"))
+        {
+            final PVAInt index = val.get("index");
+            final PVAStringArray choices = val.get("choices");
+            return VEnum.of(index.get(), EnumDisplay.of(Arrays.asList(choices.get())), alarm, time);
+        }
+        if (value instanceof PVADoubleArray val)
+            return VNumberArray.of(ArrayDouble.of(val.get()), alarm, time, display);
+        if (value instanceof PVAFloatArray val)
+            return VNumberArray.of(ArrayFloat.of(val.get()), alarm, time, display);
+        if (value instanceof PVAIntArray val)
+            return VNumberArray.of(ArrayInteger.of(val.get()), alarm, time, display);
+        if (value instanceof PVAShortArray val)
+            return VNumberArray.of(ArrayShort.of(val.get()), alarm, time, display);
+        if (value instanceof PVAByteArray val)
+            return VNumberArray.of(ArrayByte.of(val.get()), alarm, time, display);
+        throw new Exception("Data type not handled: " + data);
+    }
+
+    /** Get value to write from data received on server side
      *  @param data Data received on server side
+     *  @return Value for writing to the client side
      *  @throws Exception on error
      */
-    public static void writeCA_PV(final PV client_pv, final PVAStructure data) throws Exception
+    public static Object getWriteValue(final PVAStructure data) throws Exception
     {
         final PVAData value = data.get("value");
         if (value instanceof PVADouble val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVANumber val)
-            client_pv.write(val.getNumber().longValue());
+            return val.getNumber().longValue();
         else if (value instanceof PVAStructure val  &&
                  val.getStructureName().equals("enum_t"))
         {
             final PVAInt index = val.get("index");
-            client_pv.write(index.get());
+            return index.get();
         }
         else if (value instanceof PVAString val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVAByteArray val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVAShortArray val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVAIntArray val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVALongArray val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVAFloatArray val)
-            client_pv.write(val.get());
+            return val.get();
         else if (value instanceof PVADoubleArray val)
-            client_pv.write(val.get());
+            return val.get();
         // TODO Handle more data types
         else
             throw new Exception("Data type not handled: " + data + (data != null ? " (" + data.getClass() + ")" : ""));
     }
+
+    /** Write data received on server side back to client
+     *  @param client_pv Client side (CA) PV
+     *  @param data Data received on server side
+     *  @throws Exception on error
+     */
+    public static void writeCA_PV(final PV client_pv, final PVAStructure data) throws Exception
+    {
+        client_pv.write(getWriteValue(data));
+    }
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+
+/** Values deferred by the throttle until they are due
+ *
+ *  Keeps the most recent deferred value per key
+ *  in a queue ordered by due time,
+ *  so checking for due values only touches those that are due.
+ *
+ *  <p>Not thread-safe, only used by the main loop.
+ *
+ *  @param <K> Key, for example the PV
+ *  @param <V> Value
+ *  @author agent
+ */
+class DeferredUpdates<K, V>
+{
+    private record Entry<V>(V value, long due)
+    {
+    }
+
+    private record Due<K>(long due, K key)
+    {
+    }
+
+    /** Deferred value by key */
+    private final Map<K, Entry<V>> values = new HashMap<>();
+
+    /** Due times in order.
+     *  Entries for values that were replaced or removed are stale
+     *  and skipped when they reach the head of the queue.
+     */
+    private final PriorityQueue<Due<K>> queue = new PriorityQueue<>(Comparator.comparingLong(Due::due));
+
+    /** Defer value, replacing an older value for the key
+     *  @param key Key
+     *  @param value Value
+     *  @param due Time when value is due [millis]
+     */
+    void defer(final K key, final V value, final long due)
+    {
+        final Entry<V> previous = values.put(key, new Entry<>(value, due));
+        if (previous == null  ||  previous.due() != due)
+            queue.add(new Due<>(due, key));
+    }
+
+    /** @param key Key for which a newer value has been sent
+     *  @return Value that was deferred or <code>null</code>
+     */
+    V remove(final K key)
+    {
+        final Entry<V> entry = values.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    /** @return Number of deferred values */
+    int size()
+    {
+        return values.size();
+    }
+
+    /** @param due Due time from queue
+     *  @param entry Current entry for the key or <code>null</code>
+     *  @return Is queue entry stale?
+     */
+    private static boolean isStale(final long due, final Entry<?> entry)
+    {
+        return entry == null  ||  entry.due() != due;
+    }
+
+    /** @return Time when next value is due [millis], <code>Long.MAX_VALUE</code> if none */
+    long getNextDue()
+    {
+        Due<K> head;
+        while ((head = queue.peek()) != null)
+        {
+            if (! isStale(head.due(), values.get(head.key())))
+                return head.due();
+            queue.poll();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /** Remove values that are due
+     *  @param now Current time [millis]
+     *  @param consumer Called with each value that is due, in order of due time
+     */
+    void pollDue(final long now, final BiConsumer<K, V> consumer)
+    {
+        Due<K> head;
+        while ((head = queue.peek()) != null  &&  head.due() <= now)
+        {
+            queue.poll();
+            final Entry<V> entry = values.get(head.key());
+            if (isStale(head.due(), entry))
+                continue;
+            values.remove(head.key());
+            consumer.accept(head.key(), entry.value());
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.acf.AccessConfig;
+import org.epics.pva.acf.AccessConfigParser;
+import org.epics.pva.pvlist.PVListFile;
+import org.epics.pva.server.FileBasedServerAuthorization;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.PVAServer.ClientInfo;
+import org.epics.pva.server.SearchHandler;
+
+/** PVA server side of the proxy for one network
+ *
+ *  Each endpoint has its own PVA server, pvlist,
+ *  access security and status PVs.
+ *  All endpoints share the client side and the
+ *  conversion of client side updates.
+ *
+ *  @author agent
+ */
+class Endpoint
+{
+    /** Maximum number of endpoints, see {@link ProxiedPV} */
+    static final int MAX_ENDPOINTS = 64;
+
+    /** Endpoint configuration
+     *  @param name Endpoint name, used for logging
+     *  @param prefix Status PV prefix
+     *  @param pvlist_file PV list file or <code>null</code>
+     *  @param acf_file Access security file or <code>null</code>
+     *  @param intf_addr_list EPICS_PVAS_INTF_ADDR_LIST or <code>null</code> for default
+     *  @param broadcast_port EPICS_PVAS_BROADCAST_PORT or 0 for default
+     *  @param server_port EPICS_PVA_SERVER_PORT or 0 for default
+     *  @param tls_port EPICS_PVAS_TLS_PORT or 0 for default
+     */
+    record Config(String name, String prefix, String pvlist_file, String acf_file,
+                  String intf_addr_list, int broadcast_port, int server_port, int tls_port)
+    {
+        /** @param prefix Status PV prefix
+         *  @param pvlist_file PV list file or <code>null</code>
+         *  @param acf_file Access security file or <code>null</code>
+         *  @return Configuration that uses the default PVA server settings
+         */
+        static Config of(final String prefix, final String pvlist_file, final String acf_file)
+        {
+            return new Config("default", prefix, pvlist_file, acf_file, null, 0, 0, 0);
+        }
+
+        /** Read endpoint configurations
+         *
+         *  <pre>
+         *  endpoints=a,b
+         *  a.prefix=a:proxy:
+         *  a.pvlist=a.pvlist
+         *  a.acf=a.acf
+         *  a.intf_addr_list=192.168.1.10
+         *  a.broadcast_port=5076
+         *  a.server_port=5075
+         *  a.tls_port=5086
+         *  b.prefix=...
+         *  </pre>
+         *
+         *  @param filename Endpoints file
+         *  @return Endpoint configurations
+         *  @throws Exception on error
+         */
+        static List<Config> load(final String filename) throws Exception
+        {
+            final Properties props = new Properties();
+            try
+            (
+                final InputStream stream = new FileInputStream(filename)
+            )
+            {
+                props.load(stream);
+            }
+            final List<Config> configs = new ArrayList<>();
+            for (String name : props.getProperty("endpoints", "").split(","))
+            {
+                name = name.trim();
+                if (name.isEmpty())
+                    continue;
+                final String prefix = props.getProperty(name + ".prefix");
+                if (prefix == null)
+                    throw new Exception("Missing " + name + ".prefix in " + filename);
+                configs.add(new Config(name, prefix,
+                                       props.getProperty(name + ".pvlist"),
+                                       props.getProperty(name + ".acf"),
+                                       props.getProperty(name + ".intf_addr_list"),
+                                       Integer.parseInt(props.getProperty(name + ".broadcast_port", "0")),
+                                       Integer.parseInt(props.getProperty(name + ".server_port", "0")),
+                                       Integer.parseInt(props.getProperty(name + ".tls_port", "0"))));
+            }
+            if (configs.isEmpty())
+                throw new Exception("No 'endpoints' in " + filename);
+            if (configs.size() > MAX_ENDPOINTS)
+                throw new Exception("More than " + MAX_ENDPOINTS + " endpoints in " + filename);
+            return configs;
+        }
+    }
+
+    /** Index of this endpoint in the proxy's list of endpoints */
+    final int index;
+
+    /** Configuration */
+    final Config config;
+
+    /** PVA server for this endpoint */
+    final PVAServer server;
+
+    /** Filter for PV names and client hosts, replaced on reload */
+    volatile PVListFile pvlist;
+
+    /** Access security, replaced on reload */
+    volatile AccessConfig access;
+
+    /** Status PVs, <code>null</code> while being constructed */
+    volatile ProxyInfo info = null;
+
+    /** @param index Index of this endpoint
+     *  @param config Configuration
+     *  @param search_handler Handler for searches received by this endpoint's server
+     *  @throws Exception on error
+     */
+    Endpoint(final int index, final Config config, final SearchHandler search_handler) throws Exception
+    {
+        this.index = index;
+        this.config = config;
+        if (config.pvlist_file() == null)
+            pvlist = PVListFile.getDefault();
+        else
+        {
+            pvlist = new PVListFile(config.pvlist_file());
+            logger.log(Level.CONFIG, config.name() + " PVList rules:\n" + pvlist);
+        }
+        if (config.acf_file() == null)
+            access = AccessConfig.getDefault();
+        else
+        {
+            access = new AccessConfigParser().parse(config.acf_file());
+            logger.log(Level.CONFIG, config.name() + " ACF rules:\n" + access);
+        }
+        server = createServer(config, search_handler);
+        server.configureAuthorization(new FileBasedServerAuthorization(pvlist, access));
+    }
+
+    /** Create PVA server with the network settings of an endpoint
+     *
+     *  core-pva reads its server settings from {@link PVASettings}
+     *  when a server is created, so these are temporarily changed
+     *  for the endpoint.
+     *  The proxy creates its endpoints one by one on the same thread,
+     *  after its PVA client, so no other PVA client or server reads
+     *  the changed settings. EndpointTest checks that they are restored.
+     */
+    private static synchronized PVAServer createServer(final Config config, final SearchHandler search_handler) throws Exception
+    {
+        final String orig_intf = PVASettings.EPICS_PVAS_INTF_ADDR_LIST;
+        final int orig_broadcast = PVASettings.EPICS_PVAS_BROADCAST_PORT,
+                  orig_server = PVASettings.EPICS_PVA_SERVER_PORT,
+                  orig_tls = PVASettings.EPICS_PVAS_TLS_PORT;
+        try
+        {
+            if (config.intf_addr_list() != null)
+                PVASettings.EPICS_PVAS_INTF_ADDR_LIST = config.intf_addr_list();
+            if (config.broadcast_port() > 0)
+                PVASettings.EPICS_PVAS_BROADCAST_PORT = config.broadcast_port();
+            if (config.server_port() > 0)
+                PVASettings.EPICS_PVA_SERVER_PORT = config.server_port();
+            if (config.tls_port() > 0)
+                PVASettings.EPICS_PVAS_TLS_PORT = config.tls_port();
+            logger.log(Level.CONFIG, "Endpoint " + config.name() +
+                       ": interfaces '" + PVASettings.EPICS_PVAS_INTF_ADDR_LIST +
+                       "', UDP port " + PVASettings.EPICS_PVAS_BROADCAST_PORT +
+                       ", TCP port " + PVASettings.EPICS_PVA_SERVER_PORT +
+                       ", TLS port " + PVASettings.EPICS_PVAS_TLS_PORT);
+            return new PVAServer(search_handler);
+        }
+        finally
+        {
+            PVASettings.EPICS_PVAS_INTF_ADDR_LIST = orig_intf;
+            PVASettings.EPICS_PVAS_BROADCAST_PORT = orig_broadcast;
+            PVASettings.EPICS_PVA_SERVER_PORT = orig_server;
+            PVASettings.EPICS_PVAS_TLS_PORT = orig_tls;
+        }
+    }
+
+    /** @param new_pvlist New {@link PVListFile} or <code>null</code> to keep the current one
+     *  @param new_access New {@link AccessConfig} or <code>null</code> to keep the current one
+     */
+    void configure(final PVListFile new_pvlist, final AccessConfig new_access)
+    {
+        if (new_pvlist != null)
+            pvlist = new_pvlist;
+        if (new_access != null)
+            access = new_access;
+        server.configureAuthorization(new FileBasedServerAuthorization(pvlist, access));
+    }
+
+    /** Most client hosts remembered per PV.
+     *  Beyond that, all connected hosts are assumed to use the PV
+     */
+    private static final int MAX_PV_HOSTS = 32;
+
+    /** Marker for a PV used by more than `MAX_PV_HOSTS` hosts */
+    private static final InetAddress[] MANY_HOSTS = new InetAddress[0];
+
+    /** @param users Hosts that searched for a PV, <code>null</code> for none
+     *  @param host Host that searched for the PV
+     *  @return Updated hosts
+     */
+    static InetAddress[] addUser(final InetAddress[] users, final InetAddress host)
+    {
+        if (users == null)
+            return new InetAddress[] { host };
+        if (users == MANY_HOSTS)
+            return users;
+        for (InetAddress user : users)
+            if (user.equals(host))
+                return users;
+        if (users.length >= MAX_PV_HOSTS)
+            return MANY_HOSTS;
+        final InetAddress[] updated = Arrays.copyOf(users, users.length + 1);
+        updated[users.length] = host;
+        return updated;
+    }
+
+    /** @param users Hosts that searched for a PV, see {@link #addUser(InetAddress[], InetAddress)}
+     *  @param hosts Client hosts, see {@link #getClientHosts()}
+     *  @return Those client hosts that use the PV
+     */
+    static List<InetAddress> getUsers(final InetAddress[] users, final Set<InetAddress> hosts)
+    {
+        if (users == MANY_HOSTS)
+            return new ArrayList<>(hosts);
+        final List<InetAddress> result = new ArrayList<>();
+        if (users != null)
+            for (InetAddress user : users)
+                if (hosts.contains(user))
+                    result.add(user);
+        return result;
+    }
+
+    /** @return Addresses of the clients that are connected to this endpoint's server */
+    Set<InetAddress> getClientHosts()
+    {
+        final Set<InetAddress> hosts = new HashSet<>();
+        for (ClientInfo client : server.getClientInfos())
+            hosts.add(client.address().getAddress());
+        return hosts;
+    }
+
+    /** @param name PV name
+     *  @param hosts Client hosts, see {@link #getClientHosts()}
+     *  @return <code>true</code> if the pvlist allows the PV for all the hosts
+     */
+    boolean isAllowed(final String name, final Collection<InetAddress> hosts)
+    {
+        final PVListFile safe_pvlist = pvlist;
+        for (InetAddress host : hosts)
+            if (safe_pvlist.getAccess(name, host) == null)
+                return false;
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Endpoint '" + config.name() + "'";
+    }
+}
@@ -0,0 +1,498 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+
+import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.pvlist.PVListFile;
+import org.epics.pva.server.ServerPV;
+import org.epics.vtype.Time;
+import org.epics.vtype.VType;
+import org.phoebus.pv.PV;
+import org.phoebus.pv.PVPool;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/** Group PV that combines several client side PVs into one PVA structure
+ *
+ *  Similar to a QSRV group, each member PV becomes a field
+ *  of the group structure, served by one {@link ServerPV}
+ *  on each endpoint where a client searched for the group
+ *  and the pvlist allows all members.
+ *  Member PVs are opened when a client first searches for the group,
+ *  and closed again when the group is unused, like proxied PVs.
+ *  They use the PV pool, so they share the client side
+ *  with proxied PVs of the same name.
+ *
+ *  <p>The group is served once all members received a value.
+ *  Member updates are combined and posted by the main loop.
+ *  An 'aligned' group waits until all connected members have
+ *  the same time stamp, or at most `group_align_ms`,
+ *  so clients receive the members of one processing chain in one update.
+ *
+ *  <p>Group PVs are read-only.
+ *
+ *  @author agent
+ */
+class GroupPV
+{
+    /** Group configuration
+     *  @param name Group PV name
+     *  @param aligned Wait for members to have the same time stamp?
+     *  @param fields Member PV names by field name
+     */
+    record Config(String name, boolean aligned, Map<String, String> fields)
+    {
+    }
+
+    /** Read group configurations
+     *
+     *  <pre>
+     *  # Comment
+     *  GROUP name_of_group [ALIGNED]
+     *     field  PV
+     *     field  PV
+     *  </pre>
+     *
+     *  @param filename Group file
+     *  @return Group configurations
+     *  @throws Exception on error
+     */
+    static List<Config> load(final String filename) throws Exception
+    {
+        final List<Config> configs = new ArrayList<>();
+        String group = null;
+        boolean aligned = false;
+        Map<String, String> fields = null;
+        int line_no = 0;
+        for (String line : Files.readAllLines(Path.of(filename)))
+        {
+            ++line_no;
+            line = line.trim();
+            if (line.isEmpty()  ||  line.startsWith("#"))
+                continue;
+            final String[] items = line.split("\\s+");
+            if (items[0].equals("GROUP"))
+            {
+                if (group != null)
+                    configs.add(new Config(group, aligned, fields));
+                if (items.length < 2  ||  items.length > 3  ||
+                    (items.length == 3  &&  !items[2].equals("ALIGNED")))
+                    throw new Exception(filename + " line " + line_no + ": Expected 'GROUP name [ALIGNED]'");
+                group = items[1];
+                aligned = items.length == 3;
+                fields = new LinkedHashMap<>();
+            }
+            else if (group == null)
+                throw new Exception(filename + " line " + line_no + ": Missing 'GROUP name' before fields");
+            else if (items.length != 2)
+                throw new Exception(filename + " line " + line_no + ": Expected 'field PV'");
+            else if (fields.put(items[0], items[1]) != null)
+                throw new Exception(filename + " line " + line_no + ": Duplicate field " + items[0]);
+        }
+        if (group != null)
+            configs.add(new Config(group, aligned, fields));
+        for (Config config : configs)
+            if (config.fields().isEmpty())
+                throw new Exception(filename + ": Group " + config.name() + " has no fields");
+        return configs;
+    }
+
+    private final Proxy proxy;
+
+    private final Config config;
+
+    /** Field names, same order as members */
+    private final String[] fields;
+
+    /** Member PV names */
+    private final String[] member_names;
+
+    /** Client PVs of the members, <code>null</code> while not opened.
+     *  Only accessed by the main loop
+     */
+    private PV[] members = null;
+
+    /** Subscriptions to the members. Only accessed by the main loop */
+    private Disposable[] subs = null;
+
+    /** Most recent value of each member, <code>null</code> until received */
+    private final AtomicReferenceArray<VType> latest;
+
+    /** Has any member received an update that's not been posted? */
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    /** Time when `changed` was set [millis] */
+    private volatile long changed_ms = 0;
+
+    /** Group data, <code>null</code> until all members received a value.
+     *  Only accessed by the main loop
+     */
+    private PVAStructure data = null;
+
+    /** Bits of endpoints where clients that are allowed to access all members searched for the group */
+    private final AtomicLong requested = new AtomicLong();
+
+    /** Hosts that searched for the group, see {@link Endpoint#addUser(InetAddress[], InetAddress)}. SYNC on this */
+    private InetAddress[] users = null;
+
+    /** Time of last search or subscription [millis] */
+    private volatile long used_ms = 0;
+
+    /** Server PVs by endpoint index, <code>null</code> until data is created,
+     *  then <code>null</code> elements for endpoints without the group.
+     *  Only accessed by the main loop
+     */
+    private ServerPV[] server_pvs = null;
+
+    /** @param proxy Proxy
+     *  @param config Group configuration
+     */
+    GroupPV(final Proxy proxy, final Config config)
+    {
+        this.proxy = proxy;
+        this.config = config;
+        final int N = config.fields().size();
+        fields = config.fields().keySet().toArray(new String[N]);
+        member_names = config.fields().values().toArray(new String[N]);
+        latest = new AtomicReferenceArray<>(N);
+        logger.log(Level.CONFIG, () -> "Group " + config);
+    }
+
+    /** Open member PVs. Called by the main loop
+     *  @throws Exception on error
+     */
+    private void openMembers() throws Exception
+    {
+        members = new PV[member_names.length];
+        subs = new Disposable[member_names.length];
+        for (int i=0; i<member_names.length; ++i)
+        {
+            final int index = i;
+            members[index] = PVPool.getPV(member_names[index]);
+            subs[index] = members[index].onValueEvent().subscribe(value -> onMemberUpdate(index, value));
+        }
+        logger.log(Level.FINE, () -> "Opened group " + config.name());
+    }
+
+    /** Close member PVs. Called by the main loop */
+    private void closeMembers()
+    {
+        if (members == null)
+            return;
+        for (int i=0; i<members.length; ++i)
+        {
+            if (subs[i] != null)
+                subs[i].dispose();
+            if (members[i] != null)
+                PVPool.releasePV(members[i]);
+        }
+        members = null;
+        subs = null;
+    }
+
+    /** @return Group PV name */
+    String getName()
+    {
+        return config.name();
+    }
+
+    /** @param pvlist {@link PVListFile} or <code>null</code> to allow all
+     *  @param host Client host
+     *  @return <code>true</code> if the pvlist allows all members for the host
+     */
+    boolean isAllowed(final PVListFile pvlist, final InetAddress host)
+    {
+        for (String member : member_names)
+            if (Proxy.getAccessGroup(pvlist, member, host) == null)
+                return false;
+        return true;
+    }
+
+    /** Serve group on an endpoint once all members have a value
+     *
+     *  Called when an allowed client searched for the group.
+     *  The main loop then opens the members unless they are already open.
+     *
+     *  @param endpoint {@link Endpoint}
+     *  @param host Client host that searched for the group
+     */
+    void request(final Endpoint endpoint, final InetAddress host)
+    {
+        synchronized (this)
+        {
+            users = Endpoint.addUser(users, host);
+        }
+        used_ms = System.currentTimeMillis();
+        requested.getAndUpdate(bits -> bits | (1L << endpoint.index));
+    }
+
+    /** @param hosts Client hosts, see {@link Endpoint#getClientHosts()}
+     *  @return Those client hosts that searched for the group
+     */
+    synchronized List<InetAddress> getUsers(final Set<InetAddress> hosts)
+    {
+        return Endpoint.getUsers(users, hosts);
+    }
+
+    /** @param endpoint {@link Endpoint}
+     *  @return Has the group been requested on the endpoint?
+     */
+    boolean isRequested(final Endpoint endpoint)
+    {
+        return (requested.get() & (1L << endpoint.index)) != 0;
+    }
+
+    /** Stop serving group on an endpoint
+     *
+     *  Called by the main loop when the pvlist changed
+     *
+     *  @param endpoint {@link Endpoint}
+     */
+    void removeEndpoint(final Endpoint endpoint)
+    {
+        requested.getAndUpdate(bits -> bits & ~(1L << endpoint.index));
+        if (server_pvs != null  &&  server_pvs[endpoint.index] != null)
+        {
+            server_pvs[endpoint.index].close();
+            server_pvs[endpoint.index] = null;
+        }
+    }
+
+    /** Create server PVs on requested endpoints that don't have one. Called by the main loop */
+    private void createServerPVs() throws Exception
+    {
+        final long bits = requested.get();
+        for (Endpoint endpoint : proxy.endpoints)
+            if ((bits & (1L << endpoint.index)) != 0  &&  server_pvs[endpoint.index] == null)
+            {
+                server_pvs[endpoint.index] = endpoint.server.createPV(config.name(), data);
+                logger.log(Level.FINE, () -> "Serving group " + config.name() + " on " + endpoint);
+            }
+    }
+
+    /** @param index Member index
+     *  @param value Value received on client side
+     */
+    void onMemberUpdate(final int index, final VType value)
+    {
+        proxy.client_update_counter.incrementAndGet();
+        latest.set(index, value);
+        if (changed.compareAndSet(false, true))
+            changed_ms = System.currentTimeMillis();
+    }
+
+    /** @return Do all connected members have the same time stamp? */
+    private boolean isAligned()
+    {
+        Instant stamp = null;
+        for (int i=0; i<fields.length; ++i)
+        {
+            final VType value = latest.get(i);
+            if (value == null  ||  PV.isDisconnected(value))
+                continue;
+            final Instant time = Time.timeOf(value).getTimestamp();
+            if (stamp == null)
+                stamp = time;
+            else if (! stamp.equals(time))
+                return false;
+        }
+        return true;
+    }
+
+    /** Post changed members to the server side
+     *
+     *  Called by the main loop
+     *
+     *  @param now Current time [millis]
+     */
+    void process(final long now)
+    {
+        try
+        {
+            if (members == null  &&  requested.get() != 0)
+                openMembers();
+            if (data != null)
+                createServerPVs();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot serve group " + config.name(), ex);
+        }
+        if (isSubscribed())
+            used_ms = now;
+        if (! changed.get())
+            return;
+        if (config.aligned()  &&  now - changed_ms < ProxyPreferences.group_align_ms  &&  !isAligned())
+            return;
+        // Updates received from now on are posted next time
+        changed.set(false);
+
+        final VType[] values = new VType[fields.length];
+        for (int i=0; i<values.length; ++i)
+        {
+            values[i] = latest.get(i);
+            // Wait for a first value of every member
+            if (data == null  &&  (values[i] == null  ||  PV.isDisconnected(values[i])))
+                return;
+        }
+
+        try
+        {
+            if (data != null  &&  isCompatible(values))
+            {
+                for (int i=0; i<values.length; ++i)
+                {
+                    final PVAStructure member = data.get(fields[i]);
+                    if (PV.isDisconnected(values[i]))
+                        DataUtil.setDisconnected(member);
+                    else
+                        DataUtil.update(member, values[i]);
+                }
+                for (ServerPV spv : server_pvs)
+                    if (spv != null)
+                        spv.update(data);
+            }
+            else
+            {   // Create group, or re-create because a member type changed.
+                // Clients need to re-connect to the new server PVs
+                closeServerPVs();
+                final List<PVAData> items = new ArrayList<>(values.length);
+                for (int i=0; i<values.length; ++i)
+                    items.add(DataUtil.create(fields[i], values[i]));
+                data = new PVAStructure(config.name(), "", items);
+                server_pvs = new ServerPV[proxy.endpoints.size()];
+                createServerPVs();
+                logger.log(Level.FINE, () -> "Created group " + config.name());
+            }
+            proxy.server_update_counter.incrementAndGet();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update group " + config.name(), ex);
+        }
+    }
+
+    /** @param values Member values
+     *  @return Can existing data be updated with the values?
+     */
+    private boolean isCompatible(final VType[] values)
+    {
+        for (int i=0; i<values.length; ++i)
+            if (! PV.isDisconnected(values[i])  &&  !DataUtil.isCompatible(data.get(fields[i]), values[i]))
+                return false;
+        return true;
+    }
+
+    private void closeServerPVs()
+    {
+        if (server_pvs == null)
+            return;
+        for (ServerPV spv : server_pvs)
+            if (spv != null)
+                spv.close();
+        server_pvs = null;
+    }
+
+    /** @return Group data, <code>null</code> until all members received a value. Only call from main loop */
+    PVAStructure getData()
+    {
+        return data;
+    }
+
+    /** @return Have members been opened? Only call from main loop */
+    boolean isOpen()
+    {
+        return members != null;
+    }
+
+    /** @return Does the group have data and are all members connected? Only call from main loop */
+    boolean isConnected()
+    {
+        if (data == null)
+            return false;
+        for (int i=0; i<fields.length; ++i)
+            if (PV.isDisconnected(latest.get(i)))
+                return false;
+        return true;
+    }
+
+    /** @return Does any client subscribe to the group? Only call from main loop */
+    private boolean isSubscribed()
+    {
+        if (server_pvs != null)
+            for (ServerPV spv : server_pvs)
+                if (spv != null  &&  spv.isSubscribed())
+                    return true;
+        return false;
+    }
+
+    /** @param now Current time [millis]
+     *  @return Seconds since the last search or subscription. Only call from main loop
+     */
+    double getUnusedSecs(final long now)
+    {
+        return (now - used_ms) / 1000.0;
+    }
+
+    /** @return Estimated memory held by the group, its members and its data [bytes] */
+    long getMemoryBytes()
+    {
+        return ProxiedPV.BASE_BYTES * (1 + fields.length) + DataUtil.estimateBytes(data);
+    }
+
+    /** Close members and server side of an unused group
+     *
+     *  The group is opened again when a client searches for it.
+     *  Called by the main loop
+     */
+    void purge()
+    {
+        logger.log(Level.FINE, () -> "Closing unused group " + config.name());
+        requested.set(0);
+        synchronized (this)
+        {
+            users = null;
+        }
+        close();
+        data = null;
+        // Start over without values, the PV pool sends the current ones when re-opened
+        for (int i=0; i<latest.length(); ++i)
+            latest.set(i, null);
+        changed.set(false);
+    }
+
+    /** Close client and server side */
+    void close()
+    {
+        closeMembers();
+        closeServerPVs();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GroupPV '" + config.name() + "'" + (config.aligned() ? " (aligned)" : "") + " " + config.fields();
+    }
+}
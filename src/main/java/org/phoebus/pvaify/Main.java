@@ -8,15 +8,13 @@
 package org.phoebus.pvaify;
 
 import java.io.FileInputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
-import org.epics.pva.acf.AccessConfig;
-import org.epics.pva.acf.AccessConfigParser;
-import org.epics.pva.pvlist.PVListFile;
 import org.phoebus.framework.preferences.PropertyPreferenceLoader;
 
 /** Proxy from CA (VType PV) to PVAccess
@@ -32,7 +30,11 @@ public class Main
         System.out.println("-settings settings.ini      - Import settings from file");
         System.out.println("-pvlist settings.pvlist     - PV name filters");
         System.out.println("-acf settings.acf           - Access security configuration file");
+        System.out.println("-endpoints file.properties  - Server endpoints, each with prefix, pvlist, acf and ports");
+        System.out.println("-groups groups.txt          - Group PVs that combine several PVs into one structure");
         System.out.println("-logging logging.properties - Logging configuration");
+        System.out.println("-replay recording.dat       - Replay recorded client side updates instead of using CA");
+        System.out.println("-speed 1.0                  - Replay speed, 1.0 for original speed, 0 for as fast as possible");
         System.out.println();
     }
 
@@ -83,8 +85,9 @@ public class Main
         LogManager.getLogManager().readConfiguration(Main.class.getResourceAsStream("/logging.properties"));
         Proxy.logger = Logger.getLogger(Main.class.getPackageName());
 
-        PVListFile pvlist = PVListFile.getDefault();
-        AccessConfig access = AccessConfig.getDefault();
+        String pvlist_file = null, acf_file = null, endpoints_file = null, groups_file = null;
+        String replay = null;
+        double speed = 1.0;
 
         // Parse command line args
         for (int i=0; i<args.length; ++i)
@@ -94,6 +97,17 @@ public class Main
                 help();
                 return;
             }
+            else if (args[i].startsWith("-sp"))
+            {
+                if (i+1 >= args.length)
+                {
+                    help();
+                    System.err.println("Missing -speed value");
+                    return;
+                }
+                speed = Double.parseDouble(args[i+1]);
+                ++i;
+            }
             else if (args[i].startsWith("-s"))
             {
                 if (i+1 >= args.length)
@@ -113,8 +127,7 @@ public class Main
                     System.err.println("Missing -pvlist filename");
                     return;
                 }
-                pvlist = new PVListFile(args[i+1]);
-                Proxy.logger.log(Level.CONFIG, "PVList rules:\n" + pvlist);
+                pvlist_file = args[i+1];
                 ++i;
             }
             else if (args[i].startsWith("-acf"))
@@ -125,8 +138,40 @@ public class Main
                     System.err.println("Missing -acf filename");
                     return;
                 }
-                access = new AccessConfigParser().parse(args[i+1]);
-                Proxy.logger.log(Level.CONFIG, "ACF rules:\n" + access);
+                acf_file = args[i+1];
+                ++i;
+            }
+            else if (args[i].startsWith("-e"))
+            {
+                if (i+1 >= args.length)
+                {
+                    help();
+                    System.err.println("Missing -endpoints filename");
+                    return;
+                }
+                endpoints_file = args[i+1];
+                ++i;
+            }
+            else if (args[i].startsWith("-g"))
+            {
+                if (i+1 >= args.length)
+                {
+                    help();
+                    System.err.println("Missing -groups filename");
+                    return;
+                }
+                groups_file = args[i+1];
+                ++i;
+            }
+            else if (args[i].startsWith("-rep"))
+            {
+                if (i+1 >= args.length)
+                {
+                    help();
+                    System.err.println("Missing -replay file");
+                    return;
+                }
+                replay = args[i+1];
                 ++i;
             }
             else if (args[i].startsWith("-log"))
@@ -151,7 +196,22 @@ public class Main
 
         configPVAfromPreferences();
 
-        final Proxy proxy = new Proxy(ProxyPreferences.prefix, pvlist, access);
+        final List<Endpoint.Config> endpoints;
+        if (endpoints_file != null)
+        {
+            if (pvlist_file != null  ||  acf_file != null)
+                Proxy.logger.log(Level.WARNING, "Ignoring -pvlist and -acf, using " + endpoints_file);
+            endpoints = Endpoint.Config.load(endpoints_file);
+        }
+        else
+            endpoints = List.of(Endpoint.Config.of(ProxyPreferences.prefix, pvlist_file, acf_file));
+
+        final Proxy proxy = new Proxy(endpoints);
+        proxy.watchConfiguration();
+        if (groups_file != null)
+            proxy.startGroups(groups_file);
+        if (replay != null)
+            proxy.startReplay(Path.of(replay), speed);
         proxy.mainLoop();
         proxy.close();
     }
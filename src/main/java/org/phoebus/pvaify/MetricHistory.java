@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+/** Time series of proxy status metrics
+ *
+ *  Ring buffer of samples, typically one per second,
+ *  each with a time stamp and one value per metric,
+ *  kept in primitive arrays.
+ *
+ *  @author agent
+ */
+class MetricHistory
+{
+    /** Samples, oldest first
+     *  @param seconds Seconds since epoch
+     *  @param values Values by metric, then by sample
+     */
+    record Samples(long[] seconds, double[][] values)
+    {
+    }
+
+    // Ring buffer, SYNC on this
+    private final long[] seconds;
+    private final double[][] values;
+
+    /** Index for next sample */
+    private int next = 0;
+
+    /** Number of valid samples */
+    private int count = 0;
+
+    /** @param metrics Number of metrics
+     *  @param size Number of samples to keep
+     */
+    MetricHistory(final int metrics, final int size)
+    {
+        seconds = new long[size];
+        values = new double[metrics][size];
+    }
+
+    /** @param secs Time stamp, seconds since epoch
+     *  @param sample Value of each metric
+     */
+    synchronized void add(final long secs, final double... sample)
+    {
+        if (seconds.length <= 0)
+            return;
+        seconds[next] = secs;
+        for (int m=0; m<values.length; ++m)
+            values[m][next] = sample[m];
+        next = (next + 1) % seconds.length;
+        if (count < seconds.length)
+            ++count;
+    }
+
+    /** @param start Start time, seconds since epoch, inclusive
+     *  @param end End time, seconds since epoch, inclusive
+     *  @return Samples within the time range, oldest first
+     */
+    synchronized Samples get(final long start, final long end)
+    {
+        final int size = seconds.length;
+        final int oldest = size <= 0 ? 0 : (next - count + size) % size;
+        int N = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final long secs = seconds[(oldest + i) % size];
+            if (secs >= start  &&  secs <= end)
+                ++N;
+        }
+        final Samples samples = new Samples(new long[N], new double[values.length][N]);
+        int s = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final int index = (oldest + i) % size;
+            if (seconds[index] < start  ||  seconds[index] > end)
+                continue;
+            samples.seconds()[s] = seconds[index];
+            for (int m=0; m<values.length; ++m)
+                samples.values()[m][s] = values[m][index];
+            ++s;
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import gov.aps.jca.Monitor;
+
+/** Monitor mask rules by PV name pattern
+ *
+ *  The PV pool subscribes all CA channels with the same monitor mask.
+ *  PVs that match a rule are instead subscribed via {@link CAContexts}
+ *  with the rule's mask, so the IOC only sends the selected updates.
+ *
+ *  @author agent
+ */
+class MonitorMask
+{
+    /** Rule
+     *  @param pattern PV name pattern
+     *  @param mask Combination of <code>gov.aps.jca.Monitor.VALUE</code> etc.
+     */
+    record Rule(Pattern pattern, int mask)
+    {
+    }
+
+    /** Read monitor mask rules
+     *
+     *  <pre>
+     *  # Comment
+     *  {regular expression for PV name}  {mask}[,{mask}]
+     *  </pre>
+     *
+     *  Masks are VALUE, ARCHIVE, ALARM or PROPERTY.
+     *  The first matching rule applies.
+     *
+     *  @param filename Rule file
+     *  @return Rules
+     *  @throws Exception on error
+     */
+    static List<Rule> load(final String filename) throws Exception
+    {
+        final List<Rule> rules = new ArrayList<>();
+        int line_no = 0;
+        for (String line : Files.readAllLines(Path.of(filename)))
+        {
+            ++line_no;
+            line = line.trim();
+            if (line.isEmpty()  ||  line.startsWith("#"))
+                continue;
+            final String[] items = line.split("\\s+");
+            if (items.length == 3)
+                throw new Exception(filename + " line " + line_no + ": Deadband is set by the record's ADEL, not in the mask file");
+            if (items.length != 2)
+                throw new Exception(filename + " line " + line_no + ": Expected 'pattern MASK'");
+            int mask = 0;
+            for (String name : items[1].split(","))
+            {
+                switch (name)
+                {
+                case "VALUE":    mask |= Monitor.VALUE;    break;
+                case "ARCHIVE":  mask |= Monitor.LOG;      break;
+                case "ALARM":    mask |= Monitor.ALARM;    break;
+                case "PROPERTY": mask |= Monitor.PROPERTY; break;
+                default:
+                    throw new Exception(filename + " line " + line_no + ": Unknown mask '" + name + "'");
+                }
+            }
+            rules.add(new Rule(Pattern.compile(items[0]), mask));
+        }
+        return rules;
+    }
+
+    /** @param rules Rules
+     *  @param name PV name
+     *  @return CA monitor mask for the PV, 0 to use the default mask
+     */
+    static int forPV(final List<Rule> rules, final String name)
+    {
+        for (Rule rule : rules)
+            if (rule.pattern().matcher(name).matches())
+                return rule.mask();
+        return 0;
+    }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.util.logging.Level;
+
+/** Governor that sheds load when the main loop cannot keep up
+ *
+ *  Measures how far the main loop falls behind its schedule
+ *  and how long it takes to process client updates.
+ *  When either exceeds the main loop period, the shedding level
+ *  is raised, and lowered again once the loop has been calm for a while.
+ *
+ *  <p>With increasing level,
+ *  <ul>
+ *  <li>the main loop period is stretched, which coalesces more updates per PV,
+ *  <li>large arrays are throttled more,
+ *  <li>finally, searches for PVs that are not proxied, yet, are ignored
+ *      so clients will search again later.
+ *  </ul>
+ *  Scalars and alarm changes are never throttled.
+ *
+ *  @author agent
+ */
+class OverloadGovernor
+{
+    /** Level at which new PVs are deferred */
+    static final int DEFER_NEW_PVS_LEVEL = 3;
+
+    /** Arrays with at least this many elements are throttled when shedding */
+    static final int SHED_ARRAY_ELEMENTS = 10000;
+
+    /** Array throttle at the first shedding level [millis], doubled for each further level */
+    private static final int SHED_ARRAY_MS = 1000;
+
+    /** Minimum time between raising the level [millis], allows previous level to take effect */
+    private static final long RAISE_HOLDOFF_MS = 1000;
+
+    /** Number of calm loops before lowering the level */
+    private static final int CALM_LOOPS = 50;
+
+    /** Current shedding level, 0 for normal operation */
+    private volatile int level = 0;
+
+    /** Time of last level change [millis] */
+    private long last_change_ms = 0;
+
+    /** Number of consecutive calm loops */
+    private int calm = 0;
+
+    /** Maximum loop lag since last call to getMaxLag [millis] */
+    private long max_lag_ms = 0;
+
+    /** @param lag_ms How much later than scheduled the main loop started [millis]
+     *  @param process_ms Time spent processing client updates [millis]
+     *  @param now Current time [millis]
+     */
+    void update(final long lag_ms, final long process_ms, final long now)
+    {
+        max_lag_ms = Math.max(max_lag_ms, lag_ms);
+        if (ProxyPreferences.max_shedding_level <= 0)
+            return;
+
+        final int period = ProxyPreferences.main_loop_ms;
+        if (lag_ms >= period  ||  process_ms >= period)
+        {
+            calm = 0;
+            if (level < ProxyPreferences.max_shedding_level  &&  now - last_change_ms >= RAISE_HOLDOFF_MS)
+                changeLevel(level + 1, now, lag_ms, process_ms);
+        }
+        else if (lag_ms < period/2  &&  process_ms < period/2)
+        {
+            if (level > 0  &&  ++calm >= CALM_LOOPS)
+            {
+                calm = 0;
+                changeLevel(level - 1, now, lag_ms, process_ms);
+            }
+        }
+        else
+            calm = 0;
+    }
+
+    private void changeLevel(final int new_level, final long now, final long lag_ms, final long process_ms)
+    {
+        logger.log(new_level > level ? Level.WARNING : Level.INFO,
+                   "Shedding level " + level + " -> " + new_level +
+                   ", loop lag " + lag_ms + " ms, processing " + process_ms + " ms");
+        level = new_level;
+        last_change_ms = now;
+    }
+
+    /** @return Current shedding level, 0 for normal operation */
+    int getLevel()
+    {
+        return level;
+    }
+
+    /** @return Maximum loop lag since last call [millis] */
+    long getMaxLag()
+    {
+        final long lag = max_lag_ms;
+        max_lag_ms = 0;
+        return lag;
+    }
+
+    /** @return Period of the main loop [millis] */
+    long getLoopPeriod()
+    {
+        return ProxyPreferences.main_loop_ms * (1L + level);
+    }
+
+    /** @return Throttle for large arrays [millis], 0 to disable */
+    int getArrayThrottle()
+    {
+        if (level <= 0)
+            return 0;
+        return SHED_ARRAY_MS << (level - 1);
+    }
+
+    /** @return Should searches for PVs that are not proxied, yet, be ignored? */
+    boolean isDeferringNewPVs()
+    {
+        return level >= DEFER_NEW_PVS_LEVEL;
+    }
+}
@@ -9,27 +9,34 @@ package org.phoebus.pvaify;
 
 import static org.phoebus.pvaify.Proxy.logger;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.BitSet;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
+import org.epics.pva.client.ClientChannelState;
+import org.epics.pva.client.PVAChannel;
 import org.epics.pva.common.TCPHandler;
+import org.epics.pva.data.PVAData;
 import org.epics.pva.data.PVAStructure;
 import org.epics.pva.server.ServerPV;
+import org.epics.vtype.VNumberArray;
 import org.epics.vtype.VType;
 import org.phoebus.pv.PV;
 import org.phoebus.pv.PVPool;
 
-import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.disposables.Disposable;
 
 /** One PV that's proxied to PVA
  *  @author Kay Kasemir
  */
-class ProxiedPV
+class ProxiedPV extends ProxiedPVState
 {
     /** Proxy to which this PV belongs */
     private final Proxy proxy;
@@ -37,11 +44,59 @@ class ProxiedPV
     /** Name of the PV */
     private final String name;
 
-    /** Send reply to PVA client which searched for this PV */
-    private final AtomicReference<Consumer<InetSocketAddress>> reply_sender = new AtomicReference<>();
+    /** Maximum number of clients for which we hold a pending search reply */
+    private static final int MAX_PENDING_REPLIES = 50;
 
-    /** Proxy lifecycle state */
-    private ProxiedPVState state = new ProxiedPVState();
+    /** Marker for `reply_senders` once replies have been sent */
+    private static final Map<InetSocketAddress, Consumer<InetSocketAddress>> REPLIED = Map.of();
+
+    /** Send reply to PVA clients which searched for this PV, by client address.
+     *
+     *  Clients that search before the server PV exists are collected here
+     *  and all receive a reply as soon as the server PV is created.
+     *  Created on first search, set to REPLIED once the replies have been sent.
+     *  SYNC on this
+     */
+    private Map<InetSocketAddress, Consumer<InetSocketAddress>> reply_senders = null;
+
+    /** Bitmask of endpoints that received a search for this PV. SYNC on this */
+    private long requested = 0;
+
+    /** Hosts that searched for this PV, see {@link Endpoint#addUser(InetAddress[], InetAddress)}. SYNC on this */
+    private InetAddress[] users = null;
+
+    /** Number of searches, decaying with `search_score_sec`. SYNC on this */
+    private double search_score = 0.0;
+
+    /** Time when search_score was last updated [millis]. SYNC on this */
+    private long search_score_ms = 0;
+
+    /** Connection phase timing, <code>null</code> once search replies were sent */
+    private volatile ConnectTiming timing = new ConnectTiming();
+
+    /** Did the most recent client side update indicate a connection? */
+    private volatile boolean connected = false;
+
+    /** Time when PV disconnected [millis], 0 while connected
+     *  and thus not in the proxy's index of disconnected PVs.
+     */
+    private volatile long disconnected_since;
+
+    /** State that only some PVs need, kept out of the PV to keep the common case small */
+    private static class Extras
+    {
+        /** Recent history of the PV, <code>null</code> if not enabled for this PV */
+        volatile UpdateHistory history;
+
+        /** PVA client channel in pass-through mode, used instead of client_pv */
+        volatile PVAChannel pva_channel;
+
+        /** Subscription to the PVA client channel */
+        volatile AutoCloseable pva_sub;
+    }
+
+    /** History and pass-through channel, <code>null</code> if none of them is used */
+    private final Extras extras;
 
     /** Client PV from which we proxy data to server PV */
     private volatile PV client_pv;
@@ -52,69 +107,368 @@ class ProxiedPV
     /** Subscription to writable state of the client PV */
     private volatile Disposable writable_sub = null;
 
-    /** PVA PV that's being generated by this proxy */
-    private volatile ServerPV server_pv;
+    /** PVA PVs that are being generated by this proxy, by endpoint index.
+     *  <code>null</code> for endpoints that did not search this PV.
+     *  Replaced as a whole when changed, SYNC on this
+     */
+    private volatile ServerPV[] server_pvs;
+
+    /** Time of last update sent to server side [millis] */
+    private long last_post_ms = 0;
+
+    /** Most recent value that's been forwarded to server PV.
+     *
+     *  Updated in place by the thread that handles this PV's updates,
+     *  holding the write lock of data_lock.
+     *  Other threads read via {@link #readData(DataReader)}.
+     *  In pass-through mode, each update is a new copy that's not modified once published.
+     */
+    private volatile PVAStructure server_data;
+
+    /** Sequence check for server_data.
+     *  Readers validate an optimistic read and only lock when
+     *  the data was updated while they read it.
+     */
+    private final StampedLock data_lock = new StampedLock();
 
-    /** Most recent value that's being forwarded to server PV */
-    private PVAStructure server_data;
+    /** Reader of server data */
+    @FunctionalInterface
+    private interface DataReader<T>
+    {
+        T read(PVAStructure data) throws Exception;
+    }
 
     /** @param proxy Proxy that holds this PV
      *  @param name PV name
-     *  @param reply_sender Allows sending reply to PVA client that searched for this PV
      */
-    ProxiedPV(final Proxy proxy, final String name, final Consumer<InetSocketAddress> reply_sender)
+    ProxiedPV(final Proxy proxy, final String name)
     {
         this.proxy = proxy;
-        this.name = name;
-        this.reply_sender.set(reply_sender);
+        // Name is shared by the map of PVs, client PV, server PV and its data
+        this.name = name.intern();
+        server_pvs = new ServerPV[proxy.endpoints.size()];
+        final UpdateHistory history = proxy.createHistory(this.name);
+        if (history != null  ||  proxy.pva_client != null)
+        {
+            extras = new Extras();
+            extras.history = history;
+        }
+        else
+            extras = null;
+        // Start out disconnected
+        disconnected_since = System.currentTimeMillis();
+        proxy.disconnected_pvs.put(this.name, this);
         logger.log(Level.FINE, () -> "-------->> Creating " + this);
     }
 
-    /** Start CA client, subscribe to value updates */
+    /** Register a client that searched for this PV
+     *
+     *  If the server PV does not exist, yet, the client will receive
+     *  a reply once it's created.
+     *  If the server PV exists on other endpoints, it's now added
+     *  to the endpoint that received the search.
+     *  Otherwise the PVA server replies on its own.
+     *
+     *  @param endpoint {@link Endpoint} that received the search
+     *  @param client Address of the client that searched for this PV
+     *  @param reply_sender Allows sending reply to PVA client that searched for this PV
+     */
+    void addSearchReply(final Endpoint endpoint, final InetSocketAddress client, final Consumer<InetSocketAddress> reply_sender)
+    {
+        synchronized (this)
+        {
+            search_score = Math.min(getSearchScore(System.currentTimeMillis()) + 1.0, ProxyPreferences.search_score_max);
+            requested |= 1L << endpoint.index;
+            users = Endpoint.addUser(users, client.getAddress());
+            if (reply_senders == REPLIED)
+            {
+                if (server_data == null  ||  server_pvs[endpoint.index] != null  ||
+                    getState() == ProxiedPVState.State.Disposed)
+                    return;
+                try
+                {
+                    final ServerPV spv = addServerPV(endpoint);
+                    if (! ProxyPreferences.readonly)
+                        spv.setWritable(isWritable());
+                }
+                catch (Exception ex)
+                {
+                    logger.log(Level.WARNING, "Cannot add " + name + " to " + endpoint, ex);
+                    return;
+                }
+                logger.log(Level.FINE, () -> "---------> Reply to search from " + client + " for " + this + " on " + endpoint);
+                reply_sender.accept(null);
+                return;
+            }
+            if (reply_senders == null)
+                reply_senders = new LinkedHashMap<>(4);
+            // A client that searches again replaces its previous entry
+            if (reply_senders.size() < MAX_PENDING_REPLIES  ||  reply_senders.containsKey(client))
+            {
+                reply_senders.put(client, reply_sender);
+                return;
+            }
+        }
+        logger.log(Level.FINE, () -> "Too many pending search replies for " + name + ", " + client + " will need to search again");
+    }
+
+    /** Search score
+     *
+     *  Counts searches, decaying with `search_score_sec`,
+     *  so a PV that's searched every 90 seconds by a periodic script
+     *  settles at a score of about `search_score_sec / 90`.
+     *  The score is limited to `search_score_max`.
+     *
+     *  @param now Current time [millis]
+     *  @return Search score
+     */
+    synchronized double getSearchScore(final long now)
+    {
+        if (search_score > 0.0  &&  now > search_score_ms)
+            search_score *= Math.exp((search_score_ms - now) / (1000.0 * ProxyPreferences.search_score_sec));
+        search_score_ms = now;
+        return search_score;
+    }
+
+    /** @return Recent history of the PV, <code>null</code> if not enabled for this PV */
+    UpdateHistory getHistory()
+    {
+        return extras == null ? null : extras.history;
+    }
+
+    /** Estimated memory used by a PV without data [bytes].
+     *  ProxiedPVFootprintTest measured about 320 bytes for an idle PV
+     */
+    static final long BASE_BYTES = 384;
+
+    /** @return Estimated memory held by the PV and its server side data [bytes] */
+    long getMemoryBytes()
+    {
+        return BASE_BYTES + DataUtil.estimateBytes(server_data);
+    }
+
+    /** Send reply to all clients that searched for this PV
+     *  while we were waiting for the first value,
+     *  then release the reply senders to GC
+     *  @throws Exception on error
+     */
+    private void sendSearchReplies() throws Exception
+    {
+        final Map<InetSocketAddress, Consumer<InetSocketAddress>> pending;
+        synchronized (this)
+        {
+            // Add endpoints that searched since the server PVs were created
+            createServerPVs();
+            pending = reply_senders;
+            reply_senders = REPLIED;
+        }
+        if (pending == null  ||  pending == REPLIED)
+            return;
+        pending.forEach((client, reply_sender) ->
+        {
+            logger.log(Level.FINE, () -> "---------> Reply to search from " + client + " for " + this);
+            reply_sender.accept(null);
+        });
+    }
+
+    /** Start CA client, subscribe to value updates
+     *
+     *  Called by the search batcher, so the PV may be closed
+     *  while it is being started.
+     */
     void start() throws Exception
     {
-        if (state.compareAndSet(ProxiedPVState.State.Created, ProxiedPVState.State.Started))
+        if (compareAndSetState(ProxiedPVState.State.Created, ProxiedPVState.State.Started))
         {
-            // Create the client PV
-            client_pv = PVPool.getPV(name);
-            // Subscribe to updates, potentially throttled
-            Flowable<VType> flow = client_pv.onValueEvent();
-            if (ProxyPreferences.client_throttle_ms > 0)
-                flow = flow.throttleLatest(ProxyPreferences.client_throttle_ms, TimeUnit.MILLISECONDS);
-            client_sub = flow.subscribe(this::onClientUpdate);
-            // On first update, when data type is known, we create the server PV
+            markPhase(ConnectTiming.Phase.Start);
+            if (proxy.pva_client != null)
+            {   // Pass PVA data through, without PV pool
+                extras.pva_channel = proxy.pva_client.getChannel(name, this::handleChannelState);
+            }
+            else
+            {
+                // Create the client PV,
+                // subscribed with the rule's monitor mask if there is one
+                final int mask = MonitorMask.forPV(proxy.monitor_masks, name);
+                final PV pv;
+                if (mask != 0)
+                    pv = proxy.ca_contexts.createPV(name, mask);
+                else if (proxy.ca_contexts != null  &&  ProxyPreferences.ca_contexts > 0)
+                    pv = proxy.ca_contexts.createPV(name);
+                else
+                    pv = PVPool.getPV(name);
+                client_pv = pv;
+                // Subscribe to updates.
+                // Throttling is handled by the ClientUpdateCache, see getDueTime()
+                client_sub = pv.onValueEvent().subscribe(this::onClientUpdate);
+                // On first update, when data type is known, we create the server PV
+            }
+            // If close() ran meanwhile, it may have missed what was just created
+            if (getState() == ProxiedPVState.State.Disposed)
+                closeClient();
         }
     }
 
+    /** Called when PVA client channel in pass-through mode (dis-)connects
+     *  @param channel PVA client channel
+     *  @param state New channel state
+     */
+    private void handleChannelState(final PVAChannel channel, final ClientChannelState state)
+    {
+        if (state == ClientChannelState.CONNECTED)
+        {
+            markPhase(ConnectTiming.Phase.Connect);
+            // Subscribe once, PVA client will re-subscribe after re-connect
+            if (extras.pva_sub == null  &&  getState() != ProxiedPVState.State.Disposed)
+            {
+                try
+                {
+                    extras.pva_sub = channel.subscribe("", this::onPVAUpdate);
+                }
+                catch (Exception ex)
+                {
+                    logger.log(Level.WARNING, "Cannot subscribe to " + name, ex);
+                }
+                if (getState() == ProxiedPVState.State.Disposed)
+                    closeClient();
+            }
+        }
+        else if (connected)
+        {   // Post last data with 'disconnected' alarm
+            setConnected(false);
+            try
+            {
+                final PVAStructure data = readData(last -> last.get("alarm") == null ? null : last.cloneData());
+                if (data != null)
+                {
+                    DataUtil.setDisconnected(data);
+                    proxy.client_update_cache.add(this, data, null);
+                }
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot mark " + name + " disconnected", ex);
+            }
+        }
+    }
+
+    /** Called when receiving value update from PVA client in pass-through mode
+     *
+     *  <p>Pass-through updates bypass the {@link UpdateRecorder}, the {@link UpdateHistory},
+     *  {@link MonitorMask} rules, the alarm priority lane and the array throttle,
+     *  which all operate on {@link VType} values.
+     *
+     *  @param channel PVA client channel
+     *  @param changes Changed elements of the data
+     *  @param overruns Overrun elements of the data
+     *  @param data Received data
+     */
+    private void onPVAUpdate(final PVAChannel channel, final BitSet changes, final BitSet overruns, final PVAStructure data)
+    {
+        proxy.client_update_counter.incrementAndGet();
+        setConnected(true);
+        markPhase(ConnectTiming.Phase.Value);
+        // PVA client re-uses 'data' for the next update, so the cache keeps a copy.
+        // While that copy waits for the next pass, only changed elements are copied
+        try
+        {
+            proxy.client_update_cache.add(this, data, changes);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot handle update for " + name, ex);
+        }
+    }
+
+    /** Start replay of recorded updates instead of CA client
+     *  @param value Recorded value
+     */
+    void replay(final VType value)
+    {
+        if (compareAndSetState(ProxiedPVState.State.Created, ProxiedPVState.State.Started))
+            markPhase(ConnectTiming.Phase.Start);
+        onClientUpdate(value);
+    }
+
+    /** @param phase Connection phase that has been reached */
+    private void markPhase(final ConnectTiming.Phase phase)
+    {
+        final ConnectTiming safe_timing = timing;
+        if (safe_timing != null)
+            safe_timing.mark(phase);
+    }
+
+    /** Hand connection timing to the proxy's statistics once search replies were sent
+     *
+     *  The statistics then await the first subscriber,
+     *  so the PV no longer holds on to the timing.
+     */
+    private void completeTiming()
+    {
+        final ConnectTiming safe_timing = timing;
+        if (safe_timing == null)
+            return;
+        timing = null;
+        logger.log(Level.FINE, () -> "Replied for " + name + " in " + safe_timing);
+        proxy.connect_stats.awaitSubscriber(name, safe_timing);
+    }
+
     /** @return PV name */
     public String getName()
     {
         return name;
     }
 
-    /** @return How long have we been in current state [secs] */
-    public double getSecsInState()
+    /** @return Is the proxy connected on the client side? */
+    public boolean isConnected()
     {
-        return state.getSecsInState();
+        return connected;
     }
 
-    /** @return Is the proxy connected on the client side? */
-    public boolean isConnected()
+    /** Update connection state and the proxy's index of disconnected PVs
+     *  @param is_connected Is the client side connected?
+     */
+    private void setConnected(final boolean is_connected)
     {
-        final PV safe_pv = client_pv;
-        if (safe_pv == null)
-            return false;
-        final VType value = safe_pv.read();
-        if (PV.isDisconnected(value))
-            return false;
-        return true;
+        if (connected == is_connected)
+            return;
+        synchronized (this)
+        {
+            connected = is_connected;
+            if (is_connected)
+                removeDisconnected();
+            else if (disconnected_since == 0  &&  getState() != ProxiedPVState.State.Disposed)
+            {
+                disconnected_since = System.currentTimeMillis();
+                proxy.disconnected_pvs.put(name, this);
+            }
+        }
+    }
+
+    /** Remove this PV from the proxy's index of disconnected PVs. SYNC on this */
+    private void removeDisconnected()
+    {
+        if (disconnected_since == 0)
+            return;
+        // A new PV for the same name might already have replaced our entry.
+        // Compare by identity since equals() only compares the name
+        proxy.disconnected_pvs.computeIfPresent(name, (n, pv) -> pv == this ? null : pv);
+        disconnected_since = 0;
     }
 
-    /** @return Is there anybody using the PV on the server side? */
+    /** @return Time when PV disconnected or was created [millis], 0 while connected */
+    long getDisconnectedSince()
+    {
+        return disconnected_since;
+    }
+
+    /** @return Is there anybody using the PV on the server side of any endpoint? */
     public boolean isSubscribed()
     {
-        final ServerPV save_pv = server_pv;
-        return save_pv != null  &&  save_pv.isSubscribed();
+        for (ServerPV spv : server_pvs)
+            if (spv != null  &&  spv.isSubscribed())
+                return true;
+        return false;
     }
 
     /** Called when receiving value update from client
@@ -123,22 +477,84 @@ class ProxiedPV
     private void onClientUpdate(final VType value)
     {
         proxy.client_update_counter.incrementAndGet();
+        setConnected(! PV.isDisconnected(value));
+        final UpdateRecorder recorder = proxy.recorder;
+        if (recorder != null)
+            recorder.record(name, value);
+        final UpdateHistory history = getHistory();
+        if (history != null)
+            history.add(value);
+        if (timing != null)
+        {
+            markPhase(ConnectTiming.Phase.Connect);
+            if (! PV.isDisconnected(value))
+                markPhase(ConnectTiming.Phase.Value);
+        }
+        // Alarm transitions take the priority lane, other updates are throttled
         proxy.client_update_cache.add(this, value);
     }
 
-    /** Send value out on server side
+    /** @param value Value received on client side
+     *  @return <code>true</code> if its alarm differs from the data last sent out
+     */
+    boolean isAlarmChanged(final VType value)
+    {
+        try
+        {
+            return Boolean.TRUE.equals(readData(last -> DataUtil.isAlarmChanged(last, value)));
+        }
+        catch (Exception ex)
+        {
+            return false;
+        }
+    }
+
+    /** When may an update be sent?
+     *
+     *  Updates are sent at most every `client_throttle_ms`,
+     *  and large arrays at most every `array_throttle_ms` while the OverloadGovernor sheds load,
+     *  always using the most recent value.
+     *  The ClientUpdateCache keeps deferred values
+     *  until they are due, replacing them with newer ones.
+     *  The first value and a change in alarm severity are never deferred.
+     *
+     *  @param value Value received on client side
+     *  @param now Current time [millis]
+     *  @param array_throttle_ms Array throttle [millis], 0 to disable
+     *  @return Time when value may be sent [millis], <code>now</code> or earlier to send right away
+     */
+    long getDueTime(final VType value, final long now, final int array_throttle_ms)
+    {
+        int throttle_ms = ProxyPreferences.client_throttle_ms;
+        if (array_throttle_ms > throttle_ms  &&
+            value instanceof VNumberArray array  &&
+            array.getData().size() >= OverloadGovernor.SHED_ARRAY_ELEMENTS)
+            throttle_ms = array_throttle_ms;
+        if (throttle_ms <= 0  ||
+            server_data == null  ||
+            DataUtil.isSeverityChanged(server_data, value))
+            return now;
+        return last_post_ms + throttle_ms;
+    }
+
+    /** Prepare sending value out on server side
      *
      *  Called via ClientUpdateCache.
-     *  Create PVA PV on first update, then keep updating its value
+     *  Create PVA PV on first update, then keep updating its data.
+     *  Posting updated data to the server PV is left to {@link #commitUpdate()}
+     *  so that a batch of updates can be prepared, then posted back-to-back.
+     *
      *  @param value Value received on client side that should be sent out on server side
+     *  @return <code>true</code> if data has been updated and needs to be committed
      */
-    void updateServerSide(final VType value)
+    boolean prepareUpdate(final VType value)
     {
-        logger.log(Level.FINER, () -> "Client: " + name + " = " + DataUtil.shorten(value, 80) + " [" + state.get() + "]");
-        if (state.get() == ProxiedPVState.State.Disposed)
+        if (logger.isLoggable(Level.FINER))
+            logger.log(Level.FINER, "Client: " + name + " = " + DataUtil.shorten(value, 80) + " [" + getState() + "]");
+        if (getState() == ProxiedPVState.State.Disposed)
         {
             logger.log(Level.FINER, () -> "Client: " + name + " update ignored, proxy has been disposed");
-            return;
+            return false;
         }
 
         // When core-pv-ca connects to a large array, it will disconnect and then
@@ -150,41 +566,60 @@ class ProxiedPV
         // If we did create the proxy's server PV with Double(NaN), the following update
         // with array data would be a type change that's resulting in a disconnect
         // -> connect, disconnect, ... loop
-        if (state.get() == ProxiedPVState.State.Started  &&  PV.isDisconnected(value))
+        if (getState() == ProxiedPVState.State.Started  &&  PV.isDisconnected(value))
         {
             logger.log(Level.FINER, () -> "Client: " + name + " ignored first 'disconnected' value from array re-connect");
-            return;
+            final ConnectTiming safe_timing = timing;
+            if (safe_timing != null)
+                safe_timing.markSkippedDisconnect();
+            return false;
         }
 
         try
         {
             // If this is the first update, create server PV with that initial value
-            if (state.compareAndSet(ProxiedPVState.State.Started, ProxiedPVState.State.FreshServer))
+            if (compareAndSetState(ProxiedPVState.State.Started, ProxiedPVState.State.FreshServer))
             {
-                server_pv = createServerPV(name, value);
-
-                // First time around, send a reply, then release the reply_sender to GC
-                final Consumer<InetSocketAddress> rs = reply_sender.getAndSet(null);
-                if (rs != null)
+                if (server_data != null  &&  DataUtil.isCompatible(server_data, value))
+                {   // Server PV was restored from cache, live data takes over
+                    updateData(value);
+                    for (ServerPV spv : server_pvs)
+                        if (spv != null)
+                            spv.update(server_data);
+                    proxy.server_update_counter.incrementAndGet();
+                }
+                else
                 {
-                    logger.log(Level.FINE, () -> "---------> Reply to search for " + this);
-                    rs.accept(null);
+                    if (server_data != null)
+                    {   // Type has changed since value was cached.
+                        // Clients need to re-connect to the new server PV
+                        logger.log(Level.INFO, () -> "Cached value for " + name + " has different type than " + DataUtil.shorten(value, 80));
+                        closeServerPVs();
+                    }
+                    server_data = DataUtil.create(name, value);
+                    createServerPVs();
                 }
+                subscribeWritable();
+                markPhase(ConnectTiming.Phase.ServerPV);
+
+                // First time around, reply to every client that searched so far
+                sendSearchReplies();
+                markPhase(ConnectTiming.Phase.Reply);
+                completeTiming();
             }
             else
             {
                 // Update server's PV data from received value
-                DataUtil.update(server_data, value);
-                logger.log(Level.FINER, () -> "Sending update : " + DataUtil.shorten(server_data, 80));
-                server_pv.update(server_data);
-                proxy.server_update_counter.incrementAndGet();
-
-                // Do we have at least one client to our server side?
-                // Then we're active
-                if (server_pv.isSubscribed())
-                    state.set(ProxiedPVState.State.Active);
-                else
-                    state.set(ProxiedPVState.State.Idle);
+                final ProxyEvents.ArrayUpdate event = new ProxyEvents.ArrayUpdate();
+                event.begin();
+                updateData(value);
+                if (value instanceof VNumberArray array  &&  event.shouldCommit())
+                {
+                    event.name = name;
+                    event.elements = array.getData().size();
+                    event.commit();
+                }
+                return true;
             }
         }
         catch (Exception ex)
@@ -192,34 +627,360 @@ class ProxiedPV
             logger.log(Level.WARNING, "Cannot update server PV " + name + " for " + DataUtil.shorten(value, 80), ex);
             close();
         }
+        return false;
     }
 
-    /** Create PVA server PV with initial value
-     *  @param name PV name
-     *  @param value Initial value
-     *  @return {@link ServerPV}
-     * @throws Exception on error
+    /** Update server data in place
+     *
+     *  Only called by the thread that handles this PV's updates.
+     *  @param value Value received on client side
+     *  @throws Exception on error
      */
-    private ServerPV createServerPV(final String name, final VType value) throws Exception
+    private void updateData(final VType value) throws Exception
     {
-        server_data = DataUtil.create(name, value);
+        final long stamp = data_lock.writeLock();
+        try
+        {
+            DataUtil.update(server_data, value);
+        }
+        finally
+        {
+            data_lock.unlockWrite(stamp);
+        }
+    }
 
-        final ServerPV spv;
-        if (ProxyPreferences.readonly)
-            spv = proxy.server.createPV(name, server_data);
+    /** Read server data from any thread
+     *
+     *  The reader is first called without locking.
+     *  If the data was updated meanwhile, the result is discarded
+     *  and the reader is called again while holding the read lock.
+     *
+     *  @param reader Reads the data, must not modify it
+     *  @return Result of reader, <code>null</code> if there is no data
+     *  @throws Exception on error
+     */
+    private <T> T readData(final DataReader<T> reader) throws Exception
+    {
+        long stamp = data_lock.tryOptimisticRead();
+        if (stamp != 0)
+        {
+            try
+            {
+                final PVAStructure data = server_data;
+                final T result = data == null ? null : reader.read(data);
+                if (data_lock.validate(stamp))
+                    return result;
+            }
+            catch (Exception ex)
+            {   // Reading data while it's updated can fail, retry with lock
+                if (data_lock.validate(stamp))
+                    throw ex;
+            }
+        }
+        stamp = data_lock.readLock();
+        try
+        {
+            final PVAStructure data = server_data;
+            return data == null ? null : reader.read(data);
+        }
+        finally
+        {
+            data_lock.unlockRead(stamp);
+        }
+    }
+
+    /** Post data that was updated by a prepare call to the server PVs of all endpoints */
+    void commitUpdate()
+    {
+        final ServerPV[] spvs = server_pvs;
+        final PVAStructure data = server_data;
+        if (data == null)
+            return;
+        try
+        {
+            if (logger.isLoggable(Level.FINER))
+                logger.log(Level.FINER, "Sending update : " + DataUtil.shorten(data, 80));
+            // Each server PV compares with its current data to
+            // determine the changed elements that need to be sent
+            for (ServerPV spv : spvs)
+                if (spv != null)
+                    spv.update(data);
+            last_post_ms = System.currentTimeMillis();
+            proxy.server_update_counter.incrementAndGet();
+            updateActivity();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update server PV " + name + " for " + DataUtil.shorten(data, 80), ex);
+            close();
+        }
+    }
+
+    /** Update state based on server side subscriptions */
+    private void updateActivity()
+    {
+        // Do we have at least one client to our server side?
+        // Then we're active
+        if (isSubscribed())
+            setState(ProxiedPVState.State.Active);
         else
+            setState(ProxiedPVState.State.Idle);
+    }
+
+    /** Prepare sending data out on server side in pass-through mode
+     *
+     *  Called via ClientUpdateCache.
+     *  Create PVA PV on first update, then keep updating its data
+     *  @param data Data received from PVA client side
+     *  @return <code>true</code> if data has been updated and needs to be committed
+     */
+    boolean prepareUpdate(final PVAStructure data)
+    {
+        if (logger.isLoggable(Level.FINER))
+            logger.log(Level.FINER, "Client: " + name + " = " + DataUtil.shorten(data, 80) + " [" + getState() + "]");
+        if (getState() == ProxiedPVState.State.Disposed)
+            return false;
+        try
+        {
+            if (compareAndSetState(ProxiedPVState.State.Started, ProxiedPVState.State.FreshServer))
+            {
+                if (server_data != null)
+                {   // Restored from cache, re-create with actual structure
+                    closeServerPVs();
+                }
+                server_data = data;
+                createServerPVs();
+                markPhase(ConnectTiming.Phase.ServerPV);
+                sendSearchReplies();
+                markPhase(ConnectTiming.Phase.Reply);
+                completeTiming();
+            }
+            else
+            {   // Received data is a new copy, published as a whole
+                server_data = data;
+                return true;
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update server PV " + name + " for " + DataUtil.shorten(data, 80), ex);
+            close();
+        }
+        return false;
+    }
+
+    /** Create PVA server PV with current server data on an endpoint. SYNC on this
+     *  @param endpoint {@link Endpoint} on which to create the PV
+     *  @return {@link ServerPV}
+     *  @throws Exception on error
+     */
+    private ServerPV addServerPV(final Endpoint endpoint) throws Exception
+    {
+        // Search thread may add a server PV while the data is updated
+        final ServerPV spv;
+        final long stamp = data_lock.readLock();
+        try
+        {
+            spv = ProxyPreferences.readonly
+                ? endpoint.server.createPV(name, server_data)
+                : endpoint.server.createPV(name, server_data, this::handleWrite);
+        }
+        finally
+        {
+            data_lock.unlockRead(stamp);
+        }
+        final ServerPV[] spvs = server_pvs.clone();
+        spvs[endpoint.index] = spv;
+        server_pvs = spvs;
+        return spv;
+    }
+
+    /** Create PVA server PVs with current server data
+     *  on all endpoints that searched for this PV
+     *  and don't have it, yet
+     *  @throws Exception on error
+     */
+    private synchronized void createServerPVs() throws Exception
+    {
+        for (Endpoint endpoint : proxy.endpoints)
+            if ((requested & (1L << endpoint.index)) != 0  &&  server_pvs[endpoint.index] == null)
+                addServerPV(endpoint);
+    }
+
+    /** Close PVA server PVs on all endpoints */
+    private void closeServerPVs()
+    {
+        final ServerPV[] spvs;
+        synchronized (this)
         {
-            spv = proxy.server.createPV(name, server_data, this::handleWrite);
+            spvs = server_pvs;
+            server_pvs = new ServerPV[spvs.length];
+        }
+        for (ServerPV spv : spvs)
+            if (spv != null)
+                spv.close();
+    }
 
-            // Dynamic write access
-            writable_sub = client_pv.onAccessRightsEvent().subscribe(writable ->
+    /** Remove PV from an endpoint
+     *
+     *  Closes the server PV on that endpoint.
+     *  Clients that are still waiting for a search reply may
+     *  need to search again.
+     *
+     *  @param endpoint {@link Endpoint} that should no longer serve this PV
+     *  @return <code>true</code> if the endpoint had requested the PV or had a server PV for it
+     *  @see #isUnrequested()
+     */
+    boolean removeEndpoint(final Endpoint endpoint)
+    {
+        final ServerPV spv;
+        final boolean removed;
+        synchronized (this)
+        {
+            final long bit = 1L << endpoint.index;
+            removed = (requested & bit) != 0  ||  server_pvs[endpoint.index] != null;
+            requested &= ~bit;
+            spv = server_pvs[endpoint.index];
+            if (spv != null)
             {
-                logger.log(Level.FINE, () -> getName() + (writable ? " is writable" : " is read-only"));
+                final ServerPV[] spvs = server_pvs.clone();
+                spvs[endpoint.index] = null;
+                server_pvs = spvs;
+            }
+        }
+        if (spv != null)
+            spv.close();
+        return removed;
+    }
+
+    /** @param endpoint {@link Endpoint}
+     *  @return <code>true</code> if a client searched for this PV on the endpoint
+     */
+    synchronized boolean isRequested(final Endpoint endpoint)
+    {
+        return (requested & (1L << endpoint.index)) != 0;
+    }
+
+    /** @param hosts Client hosts, see {@link Endpoint#getClientHosts()}
+     *  @return Those client hosts that searched for this PV
+     */
+    synchronized List<InetAddress> getUsers(final Set<InetAddress> hosts)
+    {
+        return Endpoint.getUsers(users, hosts);
+    }
+
+    /** @return <code>true</code> if no endpoint requests this PV, so it should be closed */
+    synchronized boolean isUnrequested()
+    {
+        return requested == 0;
+    }
+
+    /** @return PVA client channel in pass-through mode, otherwise <code>null</code> */
+    private PVAChannel getPVAChannel()
+    {
+        return extras == null ? null : extras.pva_channel;
+    }
+
+    /** @return Should server PVs be writable, based on the client side? */
+    private boolean isWritable()
+    {
+        final PV pv = client_pv;
+        return pv != null ? !pv.isReadonly() : getPVAChannel() != null;
+    }
+
+    /** Update writable state of server PVs from client PV */
+    private void subscribeWritable()
+    {
+        final PV pv = client_pv;
+        if (ProxyPreferences.readonly  ||  pv == null  ||  writable_sub != null)
+            return;
+        // Dynamic write access
+        writable_sub = pv.onAccessRightsEvent().subscribe(writable ->
+        {
+            logger.log(Level.FINE, () -> getName() + (writable ? " is writable" : " is read-only"));
+            for (ServerPV spv : server_pvs)
+                if (spv != null)
+                    spv.setWritable(writable);
+        });
+        if (getState() == ProxiedPVState.State.Disposed)
+            closeClient();
+    }
+
+    /** Re-apply writable state of server PV
+     *
+     *  Called when access security changed so that
+     *  the server re-evaluates access rights of connected clients
+     */
+    void updateWritable()
+    {
+        if (ProxyPreferences.readonly  ||  server_data == null)
+            return;
+        final boolean writable = isWritable();
+        logger.log(Level.FINE, () -> getName() + (writable ? " remains writable" : " remains read-only"));
+        for (ServerPV spv : server_pvs)
+            if (spv != null)
                 spv.setWritable(writable);
-            });
+    }
+
+    /** Create server data from cached value
+     *
+     *  Allows replying to searches right away,
+     *  creating the server PV on each endpoint that receives a search.
+     *  Server PV starts out disconnected and read-only.
+     *  Live data takes over once the client side has been started and received a value.
+     *
+     *  @param value Cached value
+     *  @throws Exception on error
+     */
+    void restore(final VType value) throws Exception
+    {
+        if (getState() != ProxiedPVState.State.Created  ||  server_data != null)
+            throw new IllegalStateException("Cannot restore " + this);
+        // Connection is not timed since there is nothing to wait for
+        timing = null;
+        final PVAStructure data = DataUtil.create(name, value);
+        DataUtil.setDisconnected(data);
+        synchronized (this)
+        {
+            server_data = data;
+            reply_senders = REPLIED;
         }
+    }
 
-        return spv;
+    /** @return Value that should be cached, or <code>null</code> if not connected */
+    VType getCacheValue()
+    {
+        if (! connected)
+            return null;
+        try
+        {
+            return readData(DataUtil::toVType);
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    /** @return Current value of the server side, <code>null</code> if there is none */
+    VType getSnapshotValue()
+    {
+        if (isRestored())
+            return null;
+        try
+        {
+            return readData(DataUtil::toVType);
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    /** @return Was server PV restored from cache, and client side has not been started? */
+    boolean isRestored()
+    {
+        return server_data != null  &&  getState() == ProxiedPVState.State.Created;
     }
 
     /** Handle write access on server side
@@ -231,46 +992,118 @@ class ProxiedPV
     private void handleWrite(TCPHandler tcp, ServerPV spv, BitSet changes, PVAStructure data)
     {
         logger.log(Level.FINE, () -> tcp.getRemoteAddress() + " wrote " + spv.getName() + " = " + data.get("value"));
+        final ProxyEvents.Write event = new ProxyEvents.Write();
+        event.begin();
+        boolean success = false;
         try
         {
-            DataUtil.writeCA_PV(client_pv, data);
+            final PVAChannel channel = getPVAChannel();
+            if (channel != null)
+            {
+                final PVAData value = data.get("value");
+                final String request = value instanceof PVAStructure enm  &&  "enum_t".equals(enm.getStructureName())
+                                     ? "value.index"
+                                     : "value";
+                channel.write(request, DataUtil.getWriteValue(data));
+            }
+            else
+                DataUtil.writeCA_PV(client_pv, data);
+            success = true;
         }
         catch (Exception ex)
         {
             logger.log(Level.WARNING, "Cannot write " + spv.getName(), ex);
         }
+        if (event.shouldCommit())
+        {
+            event.name = name;
+            event.client = String.valueOf(tcp.getRemoteAddress());
+            event.success = success;
+            event.commit();
+        }
     }
 
     /** Close both the server and client side */
     void close()
     {
         // Mark as disposed so further client updates will be ignored
-        state.set(ProxiedPVState.State.Disposed);
+        setState(ProxiedPVState.State.Disposed);
 
-        // Stop client ...
-        if (client_sub != null)
+        // Drop pending search replies, disconnected index entry and history
+        UpdateHistory released = null;
+        synchronized (this)
         {
-            client_sub.dispose();
-            client_sub = null;
+            reply_senders = REPLIED;
+            removeDisconnected();
+            if (extras != null)
+            {
+                released = extras.history;
+                extras.history = null;
+            }
         }
-        if (writable_sub != null)
+        if (released != null)
+            proxy.releaseHistory();
+
+        // Stop client ...
+        closeClient();
+
+        // ... then server side (if we got as far as creating one)
+        closeServerPVs();
+        logger.log(Level.FINE, () -> "<<-------- Disposed " + this);
+    }
+
+    /** Release client side
+     *
+     *  Called by close(), and by the thread that starts the client side
+     *  when it finds that the PV was closed meanwhile.
+     *  Each item is taken while holding the lock, so it's released exactly once.
+     */
+    private void closeClient()
+    {
+        final Disposable sub, writable;
+        final PV pv;
+        final AutoCloseable pva_sub;
+        final PVAChannel pva_channel;
+        synchronized (this)
         {
-            writable_sub.dispose();
+            sub = client_sub;
+            client_sub = null;
+            writable = writable_sub;
             writable_sub = null;
+            pv = client_pv;
+            client_pv = null;
+            pva_sub = extras == null ? null : extras.pva_sub;
+            pva_channel = extras == null ? null : extras.pva_channel;
+            if (extras != null)
+            {
+                extras.pva_sub = null;
+                extras.pva_channel = null;
+            }
         }
-        if (client_pv != null)
+        if (sub != null)
+            sub.dispose();
+        if (writable != null)
+            writable.dispose();
+        if (pv != null)
         {
-            PVPool.releasePV(client_pv);
-            client_pv = null;
+            if (pv instanceof CAContextPV)
+                proxy.ca_contexts.releasePV(pv);
+            else
+                PVPool.releasePV(pv);
         }
-
-        // ... then server side (if we got as far as creating one)
-        if (server_pv != null)
+        if (pva_sub != null)
         {
-            server_pv.close();
-            server_pv = null;
+            try
+            {
+                pva_sub.close();
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.FINE, "Cannot unsubscribe " + name, ex);
+            }
         }
-        logger.log(Level.FINE, () -> "<<-------- Disposed " + this);
+        if (pva_channel != null)
+            pva_channel.close();
     }
 
     // Hash and compare by name
@@ -295,6 +1128,6 @@ class ProxiedPV
     @Override
     public String toString()
     {
-        return "ProxyPV '" + getName() + "' [" + state.get() + "]";
+        return "ProxyPV '" + getName() + "' [" + getState() + "]";
     }
 }
@@ -7,7 +7,17 @@
  ******************************************************************************/
 package org.phoebus.pvaify;
 
-public class ProxiedPVState
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/** Lifecycle state of a proxied PV
+ *
+ *  Base class of {@link ProxiedPV} to hold the state
+ *  inline instead of in a separate object per PV.
+ *  The state is updated lock-free, so it does not
+ *  contend with code that synchronizes on the {@link ProxiedPV}.
+ */
+public abstract class ProxiedPVState
 {
     public enum State
     {
@@ -25,31 +35,67 @@ public class ProxiedPVState
         Disposed
     }
 
-    private State state = State.Created;
-    private long millis = System.currentTimeMillis();
+    private static final VarHandle STATE;
+
+    static
+    {
+        try
+        {
+            STATE = MethodHandles.lookup().findVarHandle(ProxiedPVState.class, "state", State.class);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /** Current state, updated via STATE */
+    private volatile State state = State.Created;
 
-    synchronized boolean compareAndSet(State expectedValue, State newValue)
+    /** Time of last state change [millis] */
+    private volatile long millis = System.currentTimeMillis();
+
+    boolean compareAndSetState(State expectedValue, State newValue)
     {
-        if (state != expectedValue)
+        if (! STATE.compareAndSet(this, expectedValue, newValue))
             return false;
-        set(newValue);
+        if (expectedValue != newValue)
+            changed(expectedValue, newValue);
         return true;
     }
 
-    synchronized State get()
+    State getState()
     {
         return state;
     }
 
-    synchronized void set(State newValue)
+    void setState(State newValue)
+    {
+        final State old = (State) STATE.getAndSet(this, newValue);
+        if (old != newValue)
+            changed(old, newValue);
+    }
+
+    /** @param from Previous state
+     *  @param to New state
+     */
+    private void changed(final State from, final State to)
     {
-        if (state == newValue)
-            return;
-        state = newValue;
         millis = System.currentTimeMillis();
+        final ProxyEvents.State event = new ProxyEvents.State();
+        if (event.shouldCommit())
+        {
+            event.name = getName();
+            event.from = from.name();
+            event.to = to.name();
+            event.commit();
+        }
     }
 
-    synchronized public double getSecsInState()
+    /** @return PV name */
+    public abstract String getName();
+
+    public double getSecsInState()
     {
         long now = System.currentTimeMillis();
         return (now - millis) / 1000.0;
@@ -7,24 +7,42 @@
  ******************************************************************************/
 package org.phoebus.pvaify;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import org.epics.pva.acf.AccessConfig;
+import org.epics.pva.client.PVAClient;
 import org.epics.pva.pvlist.PVListFile;
-import org.epics.pva.server.FileBasedServerAuthorization;
-import org.epics.pva.server.PVAServer;
+import org.epics.vtype.VType;
+import org.phoebus.pv.PV;
+import org.phoebus.pv.PVPool;
+
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /** Proxy from CA (really PV pool VType PV) to PVAccess
  *
- *  Starts PVA server, creating a {@link ProxiedPV} for
- *  each observed search request
+ *  Starts a PVA server for each {@link Endpoint}, creating a {@link ProxiedPV} for
+ *  each observed search request.
+ *  Endpoints share the client side of proxied PVs.
  *
  *  @author Kay Kasemir
  */
@@ -36,21 +54,50 @@ class Proxy
     /** Proxy runs until this counts to zero */
     private final CountDownLatch done = new CountDownLatch(1);
 
-    /** Filter for PV names and client hosts */
-    final private PVListFile pvlist;
+    /** Reloads pvlist and access security of endpoints when they change */
+    private final List<ConfigReloader> reloaders = new CopyOnWriteArrayList<>();
+
+    /** Monitor mask rules from `monitor_mask_file` */
+    final List<MonitorMask.Rule> monitor_masks;
+
+    /** Starts client side of newly searched PVs */
+    private final SearchBatcher search_batcher = new SearchBatcher();
 
     /** Cache for value updates from client side */
     final ClientUpdateCache client_update_cache;
 
-    /** PVA server side: Detects searches, provides PVA PVs */
-    final PVAServer server;
+    /** PVA server side: Each endpoint detects searches, provides PVA PVs */
+    final List<Endpoint> endpoints;
+
+    /** PVA client for pass-through mode, or <code>null</code> when using CA */
+    final PVAClient pva_client;
+
+    /** CA client contexts, or <code>null</code> when using the PV pool.
+     *  With monitor mask rules, PVs that match a rule use these contexts
+     *  even if <code>ca_contexts</code> is 0
+     */
+    final CAContexts ca_contexts;
+
+    /** Recorder for client side updates, or <code>null</code> */
+    final UpdateRecorder recorder;
 
-    /** Proxy info PVs */
-    private final ProxyInfo info;
+    /** Replay of recorded client side updates, or <code>null</code> when using CA */
+    private volatile UpdateReplay replay = null;
+
+    /** File for cached values of proxied PVs, or <code>null</code> */
+    private final ValueCacheFile value_cache;
+
+    /** Group PVs by name */
+    private final Map<String, GroupPV> groups = new ConcurrentHashMap<>();
 
     /** PVA PVs that we proxy by name */
     private final ConcurrentHashMap<String, ProxiedPV> pvs = new ConcurrentHashMap<>();
 
+    /** Index of disconnected PVs, sorted by name.
+     *  Maintained by {@link ProxiedPV} on connection changes
+     */
+    final ConcurrentSkipListMap<String, ProxiedPV> disconnected_pvs = new ConcurrentSkipListMap<>();
+
     /** Counter for received name searches */
     private final AtomicInteger search_counter = new AtomicInteger();
 
@@ -60,21 +107,148 @@ class Proxy
     /** Counter for updates sent to server side */
     final AtomicInteger server_update_counter = new AtomicInteger();
 
-    /** @param prefix Prefix for status PVs
-     *  @param pvlist {@link PVListFile}
-     *  @param access {@link AccessConfig}
+    /** Pattern for PV names that keep a recent history, or <code>null</code> */
+    private final Pattern history_pattern = ProxyPreferences.history_pattern.isBlank()
+                                          ? null
+                                          : Pattern.compile(ProxyPreferences.history_pattern);
+
+    /** Number of PVs with history */
+    private final AtomicInteger history_count = new AtomicInteger();
+
+    /** Counter for unused PVs evicted because of the memory budget */
+    private final AtomicInteger evict_counter = new AtomicInteger();
+
+    /** Governor that sheds load when main loop can't keep up */
+    final OverloadGovernor governor = new OverloadGovernor();
+
+    /** Connection timing of proxied PVs */
+    final ConnectStatistics connect_stats = new ConnectStatistics();
+
+    /** @param configs Configuration of endpoints
+     *  @throws Exception on error
      */
-    public Proxy(final String prefix, final PVListFile pvlist, final AccessConfig access) throws Exception
+    public Proxy(final List<Endpoint.Config> configs) throws Exception
     {
-        this.pvlist = pvlist;
+        if (configs.isEmpty()  ||  configs.size() > Endpoint.MAX_ENDPOINTS)
+            throw new Exception("Need 1 to " + Endpoint.MAX_ENDPOINTS + " endpoints");
+        monitor_masks = ProxyPreferences.monitor_mask_file.isBlank()
+                      ? List.of()
+                      : MonitorMask.load(ProxyPreferences.monitor_mask_file);
         client_update_cache = new ClientUpdateCache();
-        server = new PVAServer(this::handleSearchRequest);
-        server.configureAuthorization(new FileBasedServerAuthorization(pvlist, access));
-        info = new ProxyInfo(prefix, this);
+        pva_client = ProxyPreferences.pva_passthrough ? new PVAClient() : null;
+        ca_contexts = pva_client == null  &&  (ProxyPreferences.ca_contexts > 0  ||  ! monitor_masks.isEmpty())
+                    ? new CAContexts(Math.max(1, ProxyPreferences.ca_contexts))
+                    : null;
+        if (pva_client != null  &&
+            (! ProxyPreferences.record_file.isBlank()  ||  ! ProxyPreferences.history_pattern.isBlank()  ||  ! monitor_masks.isEmpty()))
+            logger.log(Level.WARNING, "Update recorder, history and monitor masks are not applied in PVA pass-through mode");
+        recorder = ProxyPreferences.record_file.isBlank()
+                 ? null
+                 : new UpdateRecorder(Path.of(ProxyPreferences.record_file), ProxyPreferences.record_max_mb);
+        final List<Endpoint> list = new ArrayList<>(configs.size());
+        for (Endpoint.Config config : configs)
+        {
+            final int index = list.size();
+            // Search handler can be called before 'endpoints' has been set
+            final Endpoint[] endpoint = new Endpoint[1];
+            endpoint[0] = new Endpoint(index, config,
+                                       (seq, cid, name, client, reply_sender) ->
+                                       endpoint[0] != null  &&
+                                       handleSearchRequest(endpoint[0], seq, cid, name, client, reply_sender));
+            list.add(endpoint[0]);
+        }
+        endpoints = List.copyOf(list);
+        for (Endpoint endpoint : endpoints)
+            endpoint.info = new ProxyInfo(endpoint, this);
+
+        if (ProxyPreferences.value_cache_file.isBlank())
+            value_cache = null;
+        else
+        {
+            value_cache = new ValueCacheFile(Path.of(ProxyPreferences.value_cache_file));
+            restoreCachedValues();
+        }
     }
 
-    /** Server invokes this for every received name search.
+    /** Create server PVs for cached values
      *
+     *  Searches for these PVs will receive a reply right away.
+     *  The first search starts the client side as usual,
+     *  while PVs that are not searched will be purged.
+     */
+    private void restoreCachedValues()
+    {
+        // Names in cache passed the pvlist when they were cached.
+        // If the pvlist changed, searches for now denied PVs
+        // are still filtered in handleSearchRequest
+        value_cache.load().forEach((name, value) ->
+        {
+            if (isInfoPV(name))
+                return;
+            final ProxiedPV pv = new ProxiedPV(this, name);
+            try
+            {
+                pv.restore(value);
+                pvs.put(name, pv);
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot restore " + name + " from cache", ex);
+                pv.close();
+            }
+        });
+    }
+
+    /** Save values of connected PVs to cache file
+     *
+     *  Values are collected right here, while encoding and writing
+     *  the file is left to a background thread to avoid delaying
+     *  the main loop.
+     *
+     *  @param background Save in background, or wait for any background save to finish and then save?
+     */
+    private void saveCachedValues(final boolean background)
+    {
+        final Map<String, VType> values = new HashMap<>();
+        for (ProxiedPV pv : pvs.values())
+        {
+            final VType value = pv.getCacheValue();
+            if (value != null)
+                values.put(pv.getName(), value);
+        }
+        if (background)
+        {
+            value_cache.saveInBackground(values);
+            return;
+        }
+        value_cache.close();
+        try
+        {
+            value_cache.save(values);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot save cached values", ex);
+        }
+    }
+
+    /** @param name PV name
+     *  @return Is this a status PV of any endpoint, one that should not be proxied?
+     */
+    boolean isInfoPV(final String name)
+    {
+        for (Endpoint endpoint : endpoints)
+        {
+            final ProxyInfo info = endpoint.info;
+            if (info != null  &&  info.isInfoPV(name))
+                return true;
+        }
+        return false;
+    }
+
+    /** Server of an endpoint invokes this for every received name search.
+     *
+     *  @param endpoint {@link Endpoint} that received the search
      *  @param seq Client's search sequence
      *  @param cid Client channel ID or -1
      *  @param name Channel name or <code>null</code>
@@ -82,17 +256,43 @@ class Proxy
      *  @param reply_sender Callback for TCP address of server
      *  @return <code>true</code> if the search request was handled
      */
-    private boolean handleSearchRequest(final int seq, final int cid, final String name,
+    private boolean handleSearchRequest(final Endpoint endpoint,
+                                        final int seq, final int cid, final String name,
                                         final InetSocketAddress client,
                                         final Consumer<InetSocketAddress> reply_sender)
     {
         logger.log(Level.FINE, () -> client + " searches for " + name + " [CID " + cid + ", seq " + seq + "]");
 
         search_counter.incrementAndGet();
+        final ProxyEvents.Search event = new ProxyEvents.Search();
+        event.begin();
 
         // Is PV filtered out? Then return true to pretend we handled it (by ignoring it)
-        if (pvlist != null  &&  pvlist.getAccess(name, client.getAddress()) == null)
+        if (getAccessGroup(endpoint.pvlist, name, client.getAddress()) == null)
+        {
+            commit(event, name, client, true);
             return true;
+        }
+
+        // Group is only served where the pvlist allows all its members
+        final GroupPV group = groups.get(name);
+        if (group != null  &&  endpoint.info != null)
+        {
+            if (! group.isAllowed(endpoint.pvlist, client.getAddress()))
+            {
+                commit(event, name, client, true);
+                return true;
+            }
+            group.request(endpoint, client.getAddress());
+        }
+
+        // When overloaded, ignore searches for new PVs so clients search again later
+        if (governor.isDeferringNewPVs()  &&  !pvs.containsKey(name)  &&  endpoint.info != null  &&  !isInfoPV(name))
+        {
+            logger.log(Level.FINE, () -> "Overloaded, deferring search for " + name);
+            commit(event, name, client, true);
+            return true;
+        }
 
         // TODO Make this one of the status/control PVs
         if (name.equals("QUIT"))
@@ -101,27 +301,27 @@ class Proxy
             done.countDown();
         }
 
-        // Info PVs are already handled by `server`, no need to proxy
-        // (During startup, info can be null because we're just constructing it)
-        if (info != null  &&  !info.isInfoPV(name))
+        // Info PVs are already handled by the endpoint's server, no need to proxy
+        // (During startup, info can be null because we're just constructing it).
+        // Group PVs are served once all their members have a value
+        if (endpoint.info != null  &&  !isInfoPV(name)  &&  !groups.containsKey(name))
         {
             // Create proxy PV unless it already exists
-            final ProxiedPV pv = pvs.computeIfAbsent(name, pv_name -> new ProxiedPV(this, pv_name, reply_sender));
-            try
-            {   // Start the proxy PV
-                //
-                // This might fail to connect, then dispose the PV and remove it from `pvs`.
-                // To avoid 'recursive update' errors, adding the PV to pvs via computeIfAbsent
-                // and starting (and potentially again removing the PV) thus need to be
-                // separate steps
-                pv.start();
-            }
-            catch (Exception ex)
-            {
-                logger.log(Level.WARNING, "Cannot create client PV " + name, ex);
-            }
+            final ProxiedPV pv = pvs.computeIfAbsent(name, pv_name -> new ProxiedPV(this, pv_name));
+            // Remember this client so it receives a reply as soon as the PV has a value,
+            // not only the client whose search created the PV
+            pv.addSearchReply(endpoint, client, reply_sender);
+            // Start the proxy PV.
+            // To avoid 'recursive update' errors, adding the PV to pvs via computeIfAbsent
+            // and starting (and potentially again removing the PV) need to be separate steps.
+            // Starting creates the CA channel, which is left to the search batcher
+            // so the UDP thread can handle the remaining names of the search
+            if (replay == null  &&  pv.getState() == ProxiedPVState.State.Created)
+                search_batcher.submit(pv);
         }
 
+        commit(event, name, client, false);
+
         // Always return false.
         // If all goes well, ProxiedPV will soon register a ServerPV
         // and PVA server will then reply to the search with that server PV.
@@ -130,25 +330,406 @@ class Proxy
         return false;
     }
 
-    /** @return List of disconnected PV names */
-    String[] getDisconnectedPVs()
+    /** @param event Search event to commit if enabled
+     *  @param name PV name
+     *  @param client Client that searched
+     *  @param filtered Was the search filtered by the pvlist?
+     */
+    private static void commit(final ProxyEvents.Search event, final String name,
+                               final InetSocketAddress client, final boolean filtered)
+    {
+        if (event.shouldCommit())
+        {
+            event.name = name;
+            event.client = client.toString();
+            event.filtered = filtered;
+            event.commit();
+        }
+    }
+
+    /** Watch pvlist and access security files of all endpoints, reloading them when they change */
+    void watchConfiguration()
     {
-        return pvs.values()
-                  .stream()
-                  .filter(pv-> !pv.isConnected())
-                  .map(ProxiedPV::getName)
-                  .toArray(n -> new String[n]);
+        for (Endpoint endpoint : endpoints)
+            if (endpoint.config.pvlist_file() != null  ||  endpoint.config.acf_file() != null)
+                reloaders.add(new ConfigReloader(this, endpoint));
+    }
+
+    /** Swap in new pvlist and/or access security of an endpoint
+     *
+     *  PVs requested via the endpoint are evaluated for those clients
+     *  that searched for the PV and are still connected to the endpoint.
+     *  PVs that the old pvlist allowed but the new pvlist denies for any of these clients
+     *  are removed from the endpoint and closed once no endpoint uses them.
+     *  For others, the writable state is updated if the pvlist yields a different
+     *  access security group for any client, or the access security itself changed.
+     *  Groups are likewise removed when the new pvlist denies a member
+     *  to a client that searched for the group.
+     *  PVs that are not requested via the endpoint are left alone,
+     *  since their future searches are checked against the new pvlist.
+     *
+     *  @param endpoint {@link Endpoint} to reconfigure
+     *  @param new_pvlist New {@link PVListFile} or <code>null</code> to keep the current one
+     *  @param new_access New {@link AccessConfig} or <code>null</code> to keep the current one
+     */
+    void reconfigure(final Endpoint endpoint, final PVListFile new_pvlist, final AccessConfig new_access)
+    {
+        final long start = System.nanoTime();
+        final PVListFile old_pvlist = endpoint.pvlist;
+        endpoint.configure(new_pvlist, new_access);
+        final PVListFile pvlist = endpoint.pvlist;
+
+        final Set<InetAddress> hosts = endpoint.getClientHosts();
+        int affected = 0;
+        for (ProxiedPV pv : pvs.values())
+        {
+            // PVs restored from cache have not been requested.
+            // If they are now denied, their searches will be filtered
+            // and they'll be purged.
+            if (! pv.isRequested(endpoint))
+                continue;
+            boolean denied = false, changed = new_access != null;
+            for (InetAddress host : pv.getUsers(hosts))
+            {
+                final String old_asg = getAccessGroup(old_pvlist, pv.getName(), host);
+                final String asg = getAccessGroup(pvlist, pv.getName(), host);
+                if (asg == null  &&  old_asg != null)
+                {
+                    denied = true;
+                    break;
+                }
+                if (! Objects.equals(asg, old_asg))
+                    changed = true;
+            }
+            if (denied)
+            {
+                logger.log(Level.FINE, () -> "Removing " + pv.getName() + " from " + endpoint + ", now denied by pvlist");
+                if (pv.removeEndpoint(endpoint))
+                {
+                    ++affected;
+                    if (pv.isUnrequested()  &&  pvs.remove(pv.getName(), pv))
+                        pv.close();
+                }
+            }
+            else if (changed)
+            {
+                pv.updateWritable();
+                ++affected;
+            }
+        }
+        for (GroupPV group : groups.values())
+        {
+            if (! group.isRequested(endpoint))
+                continue;
+            for (InetAddress host : group.getUsers(hosts))
+                if (group.isAllowed(old_pvlist, host)  &&  !group.isAllowed(pvlist, host))
+                {
+                    logger.log(Level.FINE, () -> "Removing group " + group.getName() + " from " + endpoint + ", members now denied by pvlist");
+                    group.removeEndpoint(endpoint);
+                    ++affected;
+                    break;
+                }
+        }
+        final double secs = (System.nanoTime() - start) / 1e9;
+        logger.log(Level.INFO, String.format("Reloaded configuration of %s in %.3f seconds, %d PVs affected", endpoint, secs, affected));
+        endpoint.info.updateReload(secs, affected);
+    }
+
+    /** @param list {@link PVListFile} or <code>null</code> to allow all
+     *  @param name PV name
+     *  @param host Client host
+     *  @return Access security group, <code>null</code> if denied
+     */
+    static String getAccessGroup(final PVListFile list, final String name, final InetAddress host)
+    {
+        return list == null ? "" : list.getAccess(name, host);
+    }
+
+    /** Create group PVs
+     *  @param filename File with group configurations, see {@link GroupPV#load(String)}
+     *  @throws Exception on error
+     */
+    void startGroups(final String filename) throws Exception
+    {
+        for (GroupPV.Config config : GroupPV.load(filename))
+        {
+            if (groups.containsKey(config.name())  ||  isInfoPV(config.name()))
+                throw new Exception("Duplicate group PV name " + config.name());
+            groups.put(config.name(), new GroupPV(this, config));
+        }
+        logger.log(Level.INFO, "Loaded " + groups.size() + " group PVs from " + filename);
+    }
+
+    /** Create history for a PV
+     *
+     *  History is only kept for PVs that match `history_pattern`,
+     *  and only as long as the total size remains within `history_budget_mb`.
+     *
+     *  @param name PV name
+     *  @return {@link UpdateHistory} or <code>null</code>
+     */
+    UpdateHistory createHistory(final String name)
+    {
+        if (history_pattern == null  ||  ProxyPreferences.history_size <= 0  ||
+            !history_pattern.matcher(name).matches())
+            return null;
+        final long max = ProxyPreferences.history_budget_mb * 1024L * 1024L /
+                         ((long) ProxyPreferences.history_size * UpdateHistory.BYTES_PER_SAMPLE);
+        if (history_count.incrementAndGet() > max)
+        {
+            history_count.decrementAndGet();
+            logger.log(Level.FINE, () -> "History budget exhausted, no history for " + name);
+            return null;
+        }
+        return new UpdateHistory(ProxyPreferences.history_size);
+    }
+
+    /** Called when a PV that had a history is closed */
+    void releaseHistory()
+    {
+        history_count.decrementAndGet();
+    }
+
+    /** @param endpoint {@link Endpoint} that asks for the history
+     *  @param name PV name
+     *  @return Recent history of the PV, <code>null</code> if PV is not proxied on the endpoint or has no history
+     */
+    UpdateHistory getHistory(final Endpoint endpoint, final String name)
+    {
+        final ProxiedPV pv = pvs.get(name);
+        return pv == null  ||  !pv.isRequested(endpoint) ? null : pv.getHistory();
+    }
+
+    /** Value in a snapshot
+     *  @param name PV name
+     *  @param value Value or <code>null</code> if it could not be read
+     *  @param proxied Was the value taken from a proxied PV?
+     */
+    record Snapshot(String name, VType value, boolean proxied)
+    {
+    }
+
+    /** @param pattern Pattern for PV names
+     *  @param limit Maximum number of names to return
+     *  @return Names of proxied PVs that match the pattern, sorted
+     */
+    List<String> getProxiedNames(final Pattern pattern, final int limit)
+    {
+        final List<String> names = new ArrayList<>();
+        for (String name : pvs.keySet())
+            if (pattern.matcher(name).matches())
+                names.add(name);
+        names.sort(null);
+        return names.size() > limit ? names.subList(0, limit) : names;
+    }
+
+    /** Get current values of PVs
+     *
+     *  Values of proxied PVs are taken from their server side data.
+     *  Other PVs are read via short-lived client PVs,
+     *  which are all connected in parallel and then released,
+     *  without creating proxied PVs.
+     *
+     *  @param names PV names
+     *  @return Values, same order as names
+     */
+    List<Snapshot> getSnapshot(final List<String> names)
+    {
+        final int N = names.size();
+        final VType[] values = new VType[N];
+        final boolean[] proxied = new boolean[N];
+        final PV[] clients = new PV[N];
+        final Disposable[] subs = new Disposable[N];
+        final List<CompletableFuture<VType>> reads = new ArrayList<>(N);
+        try
+        {
+            for (int i=0; i<N; ++i)
+            {
+                final ProxiedPV pv = pvs.get(names.get(i));
+                values[i] = pv == null ? null : pv.getSnapshotValue();
+                proxied[i] = values[i] != null;
+                final CompletableFuture<VType> read = new CompletableFuture<>();
+                reads.add(read);
+                if (proxied[i])
+                    continue;
+                try
+                {
+                    clients[i] = PVPool.getPV(names.get(i));
+                    subs[i] = clients[i].onValueEvent().subscribe(value ->
+                    {
+                        if (! PV.isDisconnected(value))
+                            read.complete(value);
+                    });
+                }
+                catch (Exception ex)
+                {
+                    logger.log(Level.FINE, "Cannot read " + names.get(i), ex);
+                }
+            }
+
+            // Await reads until the common deadline
+            final long deadline = System.currentTimeMillis() + ProxyPreferences.snapshot_timeout_ms;
+            for (int i=0; i<N; ++i)
+            {
+                if (clients[i] == null)
+                    continue;
+                try
+                {
+                    values[i] = reads.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+                catch (Exception ex)
+                {
+                    logger.log(Level.FINE, "No snapshot value for " + names.get(i));
+                }
+            }
+        }
+        finally
+        {
+            for (int i=0; i<N; ++i)
+            {
+                if (subs[i] != null)
+                    subs[i].dispose();
+                if (clients[i] != null)
+                    PVPool.releasePV(clients[i]);
+            }
+        }
+
+        final List<Snapshot> result = new ArrayList<>(N);
+        for (int i=0; i<N; ++i)
+            result.add(new Snapshot(names.get(i), values[i], proxied[i]));
+        return result;
+    }
+
+    /** Unused PV that's retained for now
+     *  @param pv {@link ProxiedPV}
+     *  @param bytes Estimated memory held by the PV
+     *  @param score Search score
+     */
+    private record Retained(ProxiedPV pv, long bytes, double score)
+    {
+        /** @return Cost to rebuild the PV, relative to the memory it holds */
+        double getCostPerByte()
+        {
+            return (1.0 + score) / bytes;
+        }
+    }
+
+    /** Remove and close an unused PV
+     *  @param pv {@link ProxiedPV}
+     */
+    private void purge(final ProxiedPV pv)
+    {
+        logger.log(Level.FINER, () -> "Removing unused proxy " + pv);
+        final ProxyEvents.Purge event = new ProxyEvents.Purge();
+        if (event.shouldCommit())
+        {
+            event.name = pv.getName();
+            event.state = pv.getState().name();
+            event.secs = pv.getSecsInState();
+            event.commit();
+        }
+        // Atomically remove 'pv' for the name, then close.
+        // A new search might create a new pv for the same name right after 'remove'.
+        // We'd still continue and close the _original_ pv for that name,
+        // allowing the new one to start up in parallel
+        if (pvs.remove(pv.getName(), pv))
+            pv.close();
+        else
+            logger.log(Level.WARNING, "Tried to remove unknown PV " + pv.getName(),
+                       new Exception("Stack trace"));
+    }
+
+    /** Replay recorded updates instead of using CA
+     *  @param file File created by {@link UpdateRecorder}
+     *  @param speed Replay speed, 1.0 for original speed, 0 for as fast as possible
+     */
+    void startReplay(final Path file, final double speed)
+    {
+        replay = new UpdateReplay(this::replay, file, speed);
+        replay.start();
+    }
+
+    /** Called by {@link UpdateReplay} for each recorded value
+     *  @param name PV name
+     *  @param value Recorded value
+     */
+    void replay(final String name, final VType value)
+    {
+        pvs.computeIfAbsent(name, pv_name -> new ProxiedPV(this, pv_name))
+           .replay(value);
+    }
+
+    /** Disconnected PV
+     *  @param name PV name
+     *  @param since Time when PV disconnected or was created [millis]
+     */
+    record Disconnected(String name, long since)
+    {
+    }
+
+    /** Get disconnected PVs, sorted by name
+     *
+     *  Only lists PVs requested via the endpoint
+     *  that its pvlist allows for all the hosts.
+     *
+     *  @param endpoint {@link Endpoint} that asks for the list
+     *  @param hosts Client hosts, see {@link Endpoint#getClientHosts()}
+     *  @param pattern Regular expression for PV names or <code>null</code> for all
+     *  @param offset Number of matching PVs to skip
+     *  @param limit Maximum number of PVs to return
+     *  @param result Disconnected PVs, starting at offset
+     *  @return Total number of matching PVs
+     */
+    int getDisconnectedPVs(final Endpoint endpoint, final Set<InetAddress> hosts,
+                           final Pattern pattern, final int offset, final int limit, final List<Disconnected> result)
+    {
+        int total = 0;
+        for (ProxiedPV pv : disconnected_pvs.values())
+        {
+            if (pattern != null  &&  !pattern.matcher(pv.getName()).matches())
+                continue;
+            if (! pv.isRequested(endpoint)  ||  !endpoint.isAllowed(pv.getName(), hosts))
+                continue;
+            // Skip PV that connected since it was listed
+            final long since = pv.getDisconnectedSince();
+            if (since == 0)
+                continue;
+            if (total >= offset  &&  result.size() < limit)
+                result.add(new Disconnected(pv.getName(), since));
+            ++total;
+        }
+        return total;
     }
 
     public void mainLoop() throws InterruptedException
     {
         long last_ms = System.currentTimeMillis();
-        while (! done.await(ProxyPreferences.main_loop_ms, TimeUnit.MILLISECONDS))
+        long last_cache_ms = last_ms;
+        long period = governor.getLoopPeriod();
+        long scheduled = last_ms + period;
+        while (true)
         {
+            // Wait for next pass, sending alarm transitions right away
+            client_update_cache.processPriority(scheduled);
+            if (done.getCount() <= 0)
+                break;
+
+            final long loop_start = System.currentTimeMillis();
+            final long lag = Math.max(0, loop_start - scheduled);
+
+            for (ConfigReloader reloader : reloaders)
+                reloader.check(loop_start);
+
             // Process client side updates
-            client_update_cache.process();
+            client_update_cache.process(governor.getArrayThrottle());
+            for (GroupPV group : groups.values())
+                group.process(loop_start);
+            final long loop_processed = System.currentTimeMillis();
+            governor.update(lag, loop_processed - loop_start, loop_processed);
 
             int total = 0, connected = 0;
+            long memory = 0;
+            final List<Retained> unused = new ArrayList<>();
             for (ProxiedPV pv : pvs.values())
             {
                 // Collect stats
@@ -156,26 +737,83 @@ class Proxy
                 final boolean is_connected = pv.isConnected();
                 if (is_connected)
                     ++connected;
+                final boolean is_subscribed = pv.isSubscribed();
+                if (is_subscribed)
+                {
+                    // Client subscribed to PV that was restored from cache
+                    // without a search that would have started the client side?
+                    if (pv.isRestored())
+                    {
+                        try
+                        {
+                            pv.start();
+                        }
+                        catch (Exception ex)
+                        {
+                            logger.log(Level.WARNING, "Cannot create client PV " + pv.getName(), ex);
+                        }
+                    }
+                }
 
+                final long bytes = pv.getMemoryBytes();
+                if (is_connected && is_subscribed)
+                {
+                    memory += bytes;
+                    continue;
+                }
                 // Remove unused proxies.
                 // Need a long timeout because client searches will settle to 15 sec
                 // and we don't want to cull channels between a search that triggered
                 // their creation and the next search that'll then find them.
                 // (in case we don't get an earlier search reply out)
-                if (! (is_connected && pv.isSubscribed())
-                    &&
-                    pv.getSecsInState() > ProxyPreferences.unused_pv_purge_sec)
+                // PVs that are searched often, for example by periodic scripts,
+                // are kept longer so they don't need to be re-created each time.
+                final double score = pv.getSearchScore(loop_start);
+                if (pv.getSecsInState() > ProxyPreferences.unused_pv_purge_sec * Math.max(1.0, score))
+                    purge(pv);
+                else
                 {
-                    logger.log(Level.FINER, () -> "Removing unused proxy " + pv);
-                    // Atomically remove 'pv' for the name, then close.
-                    // A new search might create a new pv for the same name right after 'remove'.
-                    // We'd still continue and close the _original_ pv for that name,
-                    // allowing the new one to start up in parallel
-                    if (pvs.remove(pv.getName(), pv))
-                        pv.close();
-                    else
-                        logger.log(Level.WARNING, "Tried to remove unknown PV " + pv.getName(),
-                                   new Exception("Stack trace"));
+                    memory += bytes;
+                    unused.add(new Retained(pv, bytes, score));
+                }
+            }
+            // Groups count like PVs while their members are open,
+            // and close the members when unused
+            for (GroupPV group : groups.values())
+            {
+                if (! group.isOpen())
+                    continue;
+                if (group.getUnusedSecs(loop_start) > ProxyPreferences.unused_pv_purge_sec)
+                {
+                    group.purge();
+                    continue;
+                }
+                ++total;
+                if (group.isConnected())
+                    ++connected;
+                memory += group.getMemoryBytes();
+            }
+
+            // Complete connection timing of PVs that now have a subscriber
+            connect_stats.checkSubscribed(name ->
+            {
+                final ProxiedPV pv = pvs.get(name);
+                return pv != null  &&  pv.isSubscribed();
+            }, loop_start, Math.round(ProxyPreferences.unused_pv_purge_sec * 1000));
+
+            // Over the memory budget? Evict unused PVs that are cheapest to rebuild per byte
+            final long budget = ProxyPreferences.pv_memory_budget_mb * 1024L * 1024L;
+            if (budget > 0  &&  memory > budget)
+            {
+                unused.sort(Comparator.comparingDouble(Retained::getCostPerByte));
+                for (Retained retained : unused)
+                {
+                    if (memory <= budget)
+                        break;
+                    logger.log(Level.FINE, () -> "Memory budget exceeded, evicting " + retained.pv);
+                    purge(retained.pv);
+                    memory -= retained.bytes;
+                    evict_counter.incrementAndGet();
                 }
             }
 
@@ -186,17 +824,55 @@ class Proxy
                        : (ms - last_ms) / 1000.0;
             if (sec >= 1.0)
             {
-                info.update(total, connected,
-                            search_counter.getAndSet(0) / sec,
-                            client_update_counter.getAndSet(0) / sec,
-                            server_update_counter.getAndSet(0) / sec);
+                final double search_rate = search_counter.getAndSet(0) / sec,
+                             client_rate = client_update_counter.getAndSet(0) / sec,
+                             server_rate = server_update_counter.getAndSet(0) / sec,
+                             priority_rate = client_update_cache.priority_counter.getAndSet(0) / sec;
+                final long max_lag = governor.getMaxLag();
+                final double evict_rate = evict_counter.getAndSet(0) / sec;
+                for (Endpoint endpoint : endpoints)
+                {
+                    endpoint.info.update(total, connected, search_rate, client_rate, server_rate, priority_rate);
+                    endpoint.info.updateLoad(max_lag, governor.getLevel());
+                    endpoint.info.updateMemory(memory / (1024.0 * 1024.0), evict_rate);
+                }
                 last_ms = ms;
             }
+
+            if (value_cache != null  &&
+                ms - last_cache_ms >= ProxyPreferences.value_cache_save_sec * 1000)
+            {
+                saveCachedValues(true);
+                last_cache_ms = ms;
+            }
+
+            // Next loop is on a fixed schedule, so time spent in this loop
+            // doesn't delay it. When more than one period behind,
+            // skip the missed passes instead of running them back-to-back
+            period = governor.getLoopPeriod();
+            scheduled += period;
+            final long loop_end = System.currentTimeMillis();
+            if (loop_end - scheduled > period)
+                scheduled = loop_end - period;
         }
+        if (value_cache != null)
+            saveCachedValues(false);
     }
 
    public void close()
    {
-       server.close();
+       search_batcher.close();
+       for (GroupPV group : groups.values())
+           group.close();
+       if (replay != null)
+           replay.close();
+       if (recorder != null)
+           recorder.close();
+       for (Endpoint endpoint : endpoints)
+           endpoint.server.close();
+       if (pva_client != null)
+           pva_client.close();
+       if (ca_contexts != null)
+           ca_contexts.close();
    }
 }
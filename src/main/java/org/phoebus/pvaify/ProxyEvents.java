@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Java Flight Recorder events for the proxy
+ *
+ *  Disabled by default, enable via demo/pvaify.jfc
+ *
+ *  @author agent
+ */
+class ProxyEvents
+{
+    private static final String CATEGORY = "PVA-i-fy";
+
+    @Name("org.phoebus.pvaify.Search")
+    @Label("Search")
+    @Description("Search request received by the PVA server side")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class Search extends Event
+    {
+        @Label("PV")
+        String name;
+
+        @Label("Client")
+        String client;
+
+        @Label("Filtered")
+        @Description("Search was ignored because of the pvlist or overload")
+        boolean filtered;
+    }
+
+    @Name("org.phoebus.pvaify.State")
+    @Label("State Transition")
+    @Description("Lifecycle state change of a proxied PV")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class State extends Event
+    {
+        @Label("PV")
+        String name;
+
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+    }
+
+    @Name("org.phoebus.pvaify.CacheProcess")
+    @Label("Cache Process")
+    @Description("Client update cache pass that sends updates to the server side")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class CacheProcess extends Event
+    {
+        @Label("Batch Size")
+        @Description("Number of updates handled in this pass")
+        int size;
+
+        @Label("Deferred")
+        @Description("Number of updates deferred to a later pass")
+        int deferred;
+    }
+
+    @Name("org.phoebus.pvaify.ArrayUpdate")
+    @Label("Array Update")
+    @Description("Conversion of a client side array into server side data")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class ArrayUpdate extends Event
+    {
+        @Label("PV")
+        String name;
+
+        @Label("Elements")
+        int elements;
+    }
+
+    @Name("org.phoebus.pvaify.Write")
+    @Label("Write")
+    @Description("Write from server side client to client side PV")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class Write extends Event
+    {
+        @Label("PV")
+        String name;
+
+        @Label("Client")
+        String client;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("org.phoebus.pvaify.Purge")
+    @Label("Purge")
+    @Description("Removal of an unused proxied PV")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static class Purge extends Event
+    {
+        @Label("PV")
+        String name;
+
+        @Label("State")
+        String state;
+
+        @Label("Seconds in State")
+        double secs;
+    }
+}
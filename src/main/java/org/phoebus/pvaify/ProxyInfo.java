@@ -9,23 +9,44 @@ package org.phoebus.pvaify;
 
 import static org.phoebus.pvaify.Proxy.logger;
 
+import java.net.InetAddress;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 
+import org.epics.pva.data.PVAData;
 import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVADoubleArray;
 import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVAIntArray;
+import org.epics.pva.data.PVALongArray;
+import org.epics.pva.data.PVANumber;
 import org.epics.pva.data.PVAString;
 import org.epics.pva.data.PVAStringArray;
 import org.epics.pva.data.PVAStructure;
 import org.epics.pva.data.nt.PVAScalar;
 import org.epics.pva.data.nt.PVATable;
 import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.pva.server.PVAServer;
 import org.epics.pva.server.PVAServer.ClientInfo;
 import org.epics.pva.server.ServerPV;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloatArray;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
 
 /** PVA PVs with  proxy status
  *  @author Kay Kasemir
@@ -33,12 +54,24 @@ import org.epics.pva.server.ServerPV;
 class ProxyInfo
 {
     private final Proxy proxy;
+    private final Endpoint endpoint;
+    private final PVAServer server;
     private final PVATimeStamp stamp = new PVATimeStamp();
     private final ServerPV pvtotal_pv, connected_pv, unconnected_pv,
-                           search_pv, client_rate_pv, server_rate_pv,
+                           search_pv, client_rate_pv, server_rate_pv, priority_rate_pv,
                            clients_table_pv,
-                           list_disconnected_pv;
-    private final PVAStructure pvtotal_data, connected_data, unconnected_data, search_data, client_rate_data, server_rate_data;
+                           list_disconnected_pv,
+                           connect_times_pv, slow_connects_pv,
+                           reload_time_pv, reload_affected_pv,
+                           loop_lag_pv, shedding_level_pv,
+                           memory_pv, evict_rate_pv,
+                           history_pv, metric_history_pv,
+                           snapshot_pv;
+    private final PVAStructure pvtotal_data, connected_data, unconnected_data, search_data, client_rate_data, server_rate_data, priority_rate_data,
+                               reload_time_data, reload_affected_data,
+                               loop_lag_data, shedding_level_data,
+                               memory_data, evict_rate_data;
+    private final PVATimeStamp reload_stamp = new PVATimeStamp();
     private final Set<String> info_pv_names;
 
 
@@ -64,13 +97,41 @@ class ProxyInfo
                     client_table_auth));
 
 
-    /** @param prefix Status/Command PV prefix
+    /** Connect time histogram columns: Total, then time to reach each phase after 'Search' */
+    private final PVAIntArray[] connect_times_columns = new PVAIntArray[ConnectTiming.PHASES.length];
+
+    /** Connect time histogram */
+    private final PVAStructure connect_times;
+
+    /** Metric history column names, labels are "name [units]" */
+    private static final String[] METRIC_NAMES = { "pvtotal", "connected", "existTestRate", "clientEventRate", "serverPostRate" };
+    private static final String[] METRIC_UNITS = { "PVs", "PVs", "Hz", "Hz", "Hz" };
+
+    /** Per-second samples of status metrics */
+    private final MetricHistory metric_history = new MetricHistory(METRIC_NAMES.length, Math.max(0, ProxyPreferences.metric_history_sec));
+
+    /** Maximum number of PVs in a snapshot */
+    private static final int SNAPSHOT_LIMIT = 10000;
+
+    /** Number of array elements shown in a snapshot */
+    private static final int SNAPSHOT_ARRAY_ELEMENTS = 5;
+
+    /** Default number of entries returned by listDisconnected */
+    private static final int DISCONNECTED_LIMIT = 1000;
+
+    /** Maximum number of entries returned by slowConnects */
+    private static final int SLOW_CONNECTS = 50;
+
+    /** @param endpoint {@link Endpoint} that serves the status/command PVs, using its prefix
      *  @param proxy {@link Proxy}
      *  @throws Exception on error
      */
-    public ProxyInfo(final String prefix, final Proxy proxy) throws Exception
+    public ProxyInfo(final Endpoint endpoint, final Proxy proxy) throws Exception
     {
         this.proxy = proxy;
+        this.endpoint = endpoint;
+        server = endpoint.server;
+        final String prefix = endpoint.config.prefix();
         pvtotal_data = new PVAStructure(prefix + "pvtotal",
                          PVAScalar.SCALAR_STRUCT_NAME_STRING,
                          new PVAInt("value", 0),
@@ -78,7 +139,7 @@ class ProxyInfo
                                  new PVAString("units", "PVs"),
                                  new PVAInt("precision", 0)),
                          stamp);
-        pvtotal_pv = proxy.server.createPV(pvtotal_data.getName(), pvtotal_data);
+        pvtotal_pv = server.createPV(pvtotal_data.getName(), pvtotal_data);
 
         connected_data = new PVAStructure(prefix + "connected",
                 PVAScalar.SCALAR_STRUCT_NAME_STRING,
@@ -87,7 +148,7 @@ class ProxyInfo
                         new PVAString("units", "PVs"),
                         new PVAInt("precision", 0)),
                 stamp);
-        connected_pv = proxy.server.createPV(connected_data.getName(), connected_data);
+        connected_pv = server.createPV(connected_data.getName(), connected_data);
 
         unconnected_data = new PVAStructure(prefix + "unconnected",
                 PVAScalar.SCALAR_STRUCT_NAME_STRING,
@@ -96,7 +157,7 @@ class ProxyInfo
                         new PVAString("units", "PVs"),
                         new PVAInt("precision", 0)),
                 stamp);
-        unconnected_pv = proxy.server.createPV(unconnected_data.getName(), unconnected_data);
+        unconnected_pv = server.createPV(unconnected_data.getName(), unconnected_data);
 
         search_data = new PVAStructure(prefix + "existTestRate",
                 PVAScalar.SCALAR_STRUCT_NAME_STRING,
@@ -105,7 +166,7 @@ class ProxyInfo
                         new PVAString("units", "Hz"),
                         new PVAInt("precision", 1)),
                 stamp);
-        search_pv = proxy.server.createPV(search_data.getName(), search_data);
+        search_pv = server.createPV(search_data.getName(), search_data);
 
         client_rate_data = new PVAStructure(prefix + "clientEventRate",
                 PVAScalar.SCALAR_STRUCT_NAME_STRING,
@@ -114,7 +175,7 @@ class ProxyInfo
                         new PVAString("units", "Hz"),
                         new PVAInt("precision", 1)),
                 stamp);
-        client_rate_pv = proxy.server.createPV(client_rate_data.getName(), client_rate_data);
+        client_rate_pv = server.createPV(client_rate_data.getName(), client_rate_data);
 
         server_rate_data = new PVAStructure(prefix + "serverPostRate",
                 PVAScalar.SCALAR_STRUCT_NAME_STRING,
@@ -123,11 +184,100 @@ class ProxyInfo
                         new PVAString("units", "Hz"),
                         new PVAInt("precision", 1)),
                 stamp);
-        server_rate_pv = proxy.server.createPV(server_rate_data.getName(), server_rate_data);
+        server_rate_pv = server.createPV(server_rate_data.getName(), server_rate_data);
+
+        priority_rate_data = new PVAStructure(prefix + "priorityRate",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVADouble("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "Hz"),
+                        new PVAInt("precision", 1)),
+                stamp);
+        priority_rate_pv = server.createPV(priority_rate_data.getName(), priority_rate_data);
+
+        clients_table_pv = server.createPV(prefix + "clients", client_table);
+
+        list_disconnected_pv = server.createPV(prefix + "listDisconnected", this::listDisconnected);
+
+        final String[] buckets = new String[ConnectStatistics.BUCKETS];
+        for (int i=0; i<buckets.length; ++i)
+            buckets[i] = ConnectStatistics.getBucketLabel(i);
+        final String[] labels = new String[ConnectTiming.PHASES.length + 1];
+        final PVAData[] columns = new PVAData[ConnectTiming.PHASES.length + 1];
+        labels[0] = "Bucket [ms]";
+        columns[0] = new PVAStringArray("bucket", buckets);
+        for (int i=0; i<connect_times_columns.length; ++i)
+        {
+            labels[i+1] = i == 0 ? "Total" : ConnectTiming.PHASES[i].name();
+            connect_times_columns[i] = new PVAIntArray(labels[i+1].toLowerCase(), false, new int[buckets.length]);
+            columns[i+1] = connect_times_columns[i];
+        }
+        connect_times = new PVAStructure("connectTimes", PVATable.STRUCT_NAME,
+                                         new PVAStringArray(PVATable.LABELS_NAME, labels),
+                                         new PVAStructure(PVATable.VALUE_NAME, "", columns));
+        connect_times_pv = server.createPV(prefix + "connectTimes", connect_times);
+
+        slow_connects_pv = server.createPV(prefix + "slowConnects", this::listSlowConnects);
 
-        clients_table_pv = proxy.server.createPV(prefix + "clients", client_table);
+        reload_time_data = new PVAStructure(prefix + "reloadTime",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVADouble("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "s"),
+                        new PVAInt("precision", 3)),
+                reload_stamp);
+        reload_time_pv = server.createPV(reload_time_data.getName(), reload_time_data);
 
-        list_disconnected_pv = proxy.server.createPV(prefix + "listDisconnected", this::listDisconnected);
+        reload_affected_data = new PVAStructure(prefix + "reloadAffected",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVAInt("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "PVs"),
+                        new PVAInt("precision", 0)),
+                reload_stamp);
+        reload_affected_pv = server.createPV(reload_affected_data.getName(), reload_affected_data);
+
+        loop_lag_data = new PVAStructure(prefix + "loopLag",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVADouble("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "ms"),
+                        new PVAInt("precision", 0)),
+                stamp);
+        loop_lag_pv = server.createPV(loop_lag_data.getName(), loop_lag_data);
+
+        shedding_level_data = new PVAStructure(prefix + "sheddingLevel",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVAInt("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", ""),
+                        new PVAInt("precision", 0)),
+                stamp);
+        shedding_level_pv = server.createPV(shedding_level_data.getName(), shedding_level_data);
+
+        memory_data = new PVAStructure(prefix + "memory",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVADouble("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "MB"),
+                        new PVAInt("precision", 1)),
+                stamp);
+        memory_pv = server.createPV(memory_data.getName(), memory_data);
+
+        evict_rate_data = new PVAStructure(prefix + "evictRate",
+                PVAScalar.SCALAR_STRUCT_NAME_STRING,
+                new PVADouble("value", 0),
+                new PVAStructure("display", "display_t",
+                        new PVAString("units", "Hz"),
+                        new PVAInt("precision", 1)),
+                stamp);
+        evict_rate_pv = server.createPV(evict_rate_data.getName(), evict_rate_data);
+
+        history_pv = server.createPV(prefix + "history", this::getHistory);
+
+        metric_history_pv = server.createPV(prefix + "metricHistory", this::getMetricHistory);
+
+        snapshot_pv = server.createPV(prefix + "snapshot", this::getSnapshot);
 
         info_pv_names = Set.of(pvtotal_pv.getName(),
                                connected_pv.getName(),
@@ -135,8 +285,20 @@ class ProxyInfo
                                search_pv.getName(),
                                client_rate_pv.getName(),
                                server_rate_pv.getName(),
+                               priority_rate_pv.getName(),
                                clients_table_pv.getName(),
-                               list_disconnected_pv.getName());
+                               list_disconnected_pv.getName(),
+                               connect_times_pv.getName(),
+                               slow_connects_pv.getName(),
+                               reload_time_pv.getName(),
+                               reload_affected_pv.getName(),
+                               loop_lag_pv.getName(),
+                               shedding_level_pv.getName(),
+                               memory_pv.getName(),
+                               evict_rate_pv.getName(),
+                               history_pv.getName(),
+                               metric_history_pv.getName(),
+                               snapshot_pv.getName());
 
         logger.log(Level.CONFIG, "Info PVs: " + info_pv_names);
     }
@@ -154,14 +316,18 @@ class ProxyInfo
      *  @param search_rate Received PV name searches
      *  @param client_rate Received subscription updates from client side
      *  @param server_rate Updates sent to server side
+     *  @param priority_rate Alarm transitions sent to server side via priority lane
      */
     public void update(final int total, final int connected,
-                       final double search_rate, final double client_rate, final double server_rate)
+                       final double search_rate, final double client_rate, final double server_rate,
+                       final double priority_rate)
     {
         try
         {
             // Update common time stamp
-            stamp.set(Instant.now());
+            final Instant now = Instant.now();
+            stamp.set(now);
+            metric_history.add(now.getEpochSecond(), total, connected, search_rate, client_rate, server_rate);
 
             PVAInt ival = pvtotal_data.get("value");
             if (ival.get() != total)
@@ -206,8 +372,18 @@ class ProxyInfo
                 server_rate_pv.update(server_rate_data);
             }
 
+            dval = priority_rate_data.get("value");
+            if (dval.get() != priority_rate)
+            {
+                dval.set(priority_rate);
+                priority_rate_pv.update(priority_rate_data);
+            }
+
             if (clients_table_pv.isSubscribed())
                 clients_table_pv.update(updateClientTable());
+
+            if (connect_times_pv.isSubscribed())
+                connect_times_pv.update(updateConnectTimes());
         }
         catch (Exception ex)
         {
@@ -215,9 +391,85 @@ class ProxyInfo
         }
     }
 
+    /** @param lag_ms Maximum main loop lag [millis]
+     *  @param level Shedding level of the overload governor
+     */
+    public void updateLoad(final long lag_ms, final int level)
+    {
+        try
+        {
+            final PVADouble dval = loop_lag_data.get("value");
+            if (dval.get() != lag_ms)
+            {
+                dval.set(lag_ms);
+                loop_lag_pv.update(loop_lag_data);
+            }
+
+            final PVAInt ival = shedding_level_data.get("value");
+            if (ival.get() != level)
+            {
+                ival.set(level);
+                shedding_level_pv.update(shedding_level_data);
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update load info PVs", ex);
+        }
+    }
+
+    /** @param memory_mb Estimated memory held by all PVs and their server side data [MB]
+     *  @param evict_rate Rate of PVs evicted because of the memory budget
+     */
+    public void updateMemory(final double memory_mb, final double evict_rate)
+    {
+        try
+        {
+            PVADouble dval = memory_data.get("value");
+            if (dval.get() != memory_mb)
+            {
+                dval.set(memory_mb);
+                memory_pv.update(memory_data);
+            }
+
+            dval = evict_rate_data.get("value");
+            if (dval.get() != evict_rate)
+            {
+                dval.set(evict_rate);
+                evict_rate_pv.update(evict_rate_data);
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update memory info PVs", ex);
+        }
+    }
+
+    /** @param secs Time spent reloading the configuration and re-evaluating PVs
+     *  @param affected Number of PVs that were closed or had their access re-evaluated
+     */
+    public void updateReload(final double secs, final int affected)
+    {
+        try
+        {
+            // Time stamp indicates when configuration was reloaded
+            reload_stamp.set(Instant.now());
+            final PVADouble dval = reload_time_data.get("value");
+            dval.set(secs);
+            reload_time_pv.update(reload_time_data);
+            final PVAInt ival = reload_affected_data.get("value");
+            ival.set(affected);
+            reload_affected_pv.update(reload_affected_data);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot update reload info PVs", ex);
+        }
+    }
+
     private PVAStructure updateClientTable()
     {
-        final Collection<ClientInfo> clients = proxy.server.getClientInfos();
+        final Collection<ClientInfo> clients = server.getClientInfos();
         final ArrayList<ClientInfo> sorted = new ArrayList<>(clients);
         sorted.sort(sort_by_address.thenComparing(sort_by_port));
         final int N = sorted.size();
@@ -234,16 +486,369 @@ class ProxyInfo
         return client_table;
     }
 
-    /** List disconnected PVs
+    private PVAStructure updateConnectTimes()
+    {
+        for (int i=0; i<connect_times_columns.length; ++i)
+            connect_times_columns[i].set(proxy.connect_stats.getHistogram(i));
+        return connect_times;
+    }
+
+    /** List slowest recent connections
      *  @param parameters Optional parameters (ignored)
-     *  @return List of disconnected PVs
+     *  @return Table of slow connections with time spent in each phase
+     *  @throws Exception on error
+     */
+    private PVAStructure listSlowConnects(final PVAStructure parameters) throws Exception
+    {
+        final List<ConnectStatistics.Connect> slowest = proxy.connect_stats.getSlowest(SLOW_CONNECTS);
+        final int N = slowest.size();
+        final String[] names = new String[N], reconnect = new String[N];
+        final double[] total = new double[N];
+        final double[][] steps = new double[ConnectTiming.PHASES.length - 1][N];
+        for (int i=0; i<N; ++i)
+        {
+            final ConnectStatistics.Connect connect = slowest.get(i);
+            names[i] = connect.name();
+            total[i] = connect.total_ms();
+            for (int s=0; s<steps.length; ++s)
+                steps[s][i] = connect.step_ms()[s];
+            reconnect[i] = connect.array_reconnect() ? "yes" : "";
+        }
+
+        final String[] labels = new String[steps.length + 3];
+        final PVAData[] columns = new PVAData[steps.length + 3];
+        labels[0] = "PV";
+        columns[0] = new PVAStringArray("pv", names);
+        labels[1] = "Total [ms]";
+        columns[1] = new PVADoubleArray("total", total);
+        for (int s=0; s<steps.length; ++s)
+        {
+            final String phase = ConnectTiming.PHASES[s+1].name();
+            labels[s+2] = phase + " [ms]";
+            columns[s+2] = new PVADoubleArray(phase.toLowerCase(), steps[s]);
+        }
+        labels[labels.length-1] = "Array re-connect";
+        columns[columns.length-1] = new PVAStringArray("reconnect", reconnect);
+
+        return new PVAStructure("slowConnects", PVATable.STRUCT_NAME,
+                new PVAStringArray(PVATable.LABELS_NAME, labels),
+                new PVAStructure(PVATable.VALUE_NAME, "", columns));
+    }
+
+    /** @param parameters RPC parameters, either plain or in NTURI 'query'
+     *  @param name Parameter name
+     *  @return Parameter value as text, <code>null</code> if not provided
+     */
+    private static String getParameter(final PVAStructure parameters, final String name)
+    {
+        if (parameters == null)
+            return null;
+        final PVAStructure query = parameters.get("query");
+        final PVAData param = query != null ? query.get(name) : parameters.get(name);
+        if (param instanceof PVAString text)
+            return text.get();
+        if (param instanceof PVANumber number)
+            return number.getNumber().toString();
+        return null;
+    }
+
+    /** @param parameters RPC parameters
+     *  @param name Parameter name
+     *  @param default_value Value to use if parameter is not provided
+     *  @return Parameter value
+     *  @throws Exception if parameter is not a number
+     */
+    private static int getParameter(final PVAStructure parameters, final String name, final int default_value) throws Exception
+    {
+        final String text = getParameter(parameters, name);
+        if (text == null  ||  text.isBlank())
+            return default_value;
+        try
+        {
+            return Integer.parseInt(text.trim());
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Invalid '" + name + "': " + text);
+        }
+    }
+
+    /** @param parameters RPC parameters
+     *  @param name Parameter name
+     *  @param default_value Value to use if parameter is not provided
+     *  @return Parameter value
+     *  @throws Exception if parameter is not a number
+     */
+    private static double getParameter(final PVAStructure parameters, final String name, final double default_value) throws Exception
+    {
+        final String text = getParameter(parameters, name);
+        if (text == null  ||  text.isBlank())
+            return default_value;
+        try
+        {
+            return Double.parseDouble(text.trim());
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Invalid '" + name + "': " + text);
+        }
+    }
+
+    /** @param secs Seconds since epoch, or relative to now when zero or negative
+     *  @param now Current time
+     *  @return Time
+     */
+    private static Instant getTime(final double secs, final Instant now)
+    {
+        final long nanos = Math.round(secs * 1e9);
+        return secs <= 0 ? now.plusNanos(nanos) : Instant.ofEpochSecond(0, nanos);
+    }
+
+    /** Get recent history of a PV
+     *
+     *  Parameters:
+     *  'pv' name of the PV,
+     *  optional 'start' and 'end' in seconds since epoch,
+     *  or relative to now when zero or negative.
+     *  For example, start=-60 returns the last minute.
+     *
+     *  Only PVs requested via this endpoint
+     *  and allowed by its pvlist for every connected client.
+     *
+     *  @param parameters Parameters
+     *  @return Table of time stamps, values and severities, oldest first
+     *  @throws Exception on error
+     */
+    private PVAStructure getHistory(final PVAStructure parameters) throws Exception
+    {
+        final String name = getParameter(parameters, "pv");
+        if (name == null  ||  name.isBlank())
+            throw new Exception("Missing 'pv'");
+        // Like the snapshot, only provide PVs that the pvlist allows for every connected client
+        final UpdateHistory history = endpoint.isAllowed(name.trim(), endpoint.getClientHosts())
+                                    ? proxy.getHistory(endpoint, name.trim())
+                                    : null;
+        if (history == null)
+            throw new Exception("No history for '" + name + "'");
+
+        final Instant now = Instant.now();
+        final double start = getParameter(parameters, "start", Double.NaN);
+        final double end = getParameter(parameters, "end", Double.NaN);
+        final UpdateHistory.Samples samples = history.get(Double.isNaN(start) ? Instant.MIN : getTime(start, now),
+                                                          Double.isNaN(end) ? Instant.MAX : getTime(end, now));
+        final int N = samples.values().length;
+        final int[] severities = new int[N];
+        for (int i=0; i<N; ++i)
+            severities[i] = samples.severities()[i];
+
+        return new PVAStructure("history", PVATable.STRUCT_NAME,
+                new PVAStringArray(PVATable.LABELS_NAME, "Seconds", "Nanoseconds", "Value", "Severity"),
+                new PVAStructure(PVATable.VALUE_NAME, "",
+                        new PVALongArray("secondsPastEpoch", false, samples.seconds()),
+                        new PVAIntArray("nanoseconds", false, samples.nanos()),
+                        new PVADoubleArray("value", samples.values()),
+                        new PVAIntArray("severity", false, severities)),
+                new PVAString("descriptor", name.trim() + ", " + N + " samples"));
+    }
+
+    /** Get history of status metrics
+     *
+     *  Optional parameters 'start' and 'end' in seconds since epoch,
+     *  or relative to now when zero or negative.
+     *  For example, start=-600 returns the last 10 minutes.
+     *
+     *  @param parameters Optional parameters
+     *  @return Table with time stamp and value of each metric, oldest first
+     *  @throws Exception on error
+     */
+    private PVAStructure getMetricHistory(final PVAStructure parameters) throws Exception
+    {
+        final Instant now = Instant.now();
+        final double start = getParameter(parameters, "start", Double.NaN);
+        final double end = getParameter(parameters, "end", Double.NaN);
+        final MetricHistory.Samples samples = metric_history.get(Double.isNaN(start) ? Long.MIN_VALUE : getTime(start, now).getEpochSecond(),
+                                                                 Double.isNaN(end) ? Long.MAX_VALUE : getTime(end, now).getEpochSecond());
+
+        final String[] labels = new String[METRIC_NAMES.length + 1];
+        final PVAData[] columns = new PVAData[METRIC_NAMES.length + 1];
+        labels[0] = "Seconds";
+        columns[0] = new PVALongArray("secondsPastEpoch", false, samples.seconds());
+        for (int m=0; m<METRIC_NAMES.length; ++m)
+        {
+            labels[m+1] = METRIC_NAMES[m] + " [" + METRIC_UNITS[m] + "]";
+            columns[m+1] = new PVADoubleArray(METRIC_NAMES[m], samples.values()[m]);
+        }
+
+        return new PVAStructure("metricHistory", PVATable.STRUCT_NAME,
+                new PVAStringArray(PVATable.LABELS_NAME, labels),
+                new PVAStructure(PVATable.VALUE_NAME, "", columns),
+                new PVAString("descriptor", samples.seconds().length + " samples"));
+    }
+
+    /** Get snapshot of PV values
+     *
+     *  Parameters:
+     *  'names' with PV names separated by commas or spaces, or as a string array,
+     *  or 'pattern' regular expression for names of PVs that are already proxied.
+     *
+     *  Names are checked against the endpoint's pvlist.
+     *  Since RPC calls do not identify the calling client,
+     *  a name must be allowed for every currently connected client.
+     *
+     *  @param parameters Parameters
+     *  @return Table of values, alarms and time stamps
+     *  @throws Exception on error
+     */
+    private PVAStructure getSnapshot(final PVAStructure parameters) throws Exception
+    {
+        final List<String> names = new ArrayList<>();
+        final PVAStructure query = parameters == null ? null : parameters.get("query");
+        final PVAData names_param = parameters == null ? null : (query != null ? query.get("names") : parameters.get("names"));
+        if (names_param instanceof PVAStringArray array)
+        {
+            for (String name : array.get())
+                if (name != null  &&  !name.isBlank())
+                    names.add(name.trim());
+        }
+        else
+        {
+            final String text = getParameter(parameters, "names");
+            if (text != null)
+                for (String name : text.split("[,\\s]+"))
+                    if (! name.isEmpty())
+                        names.add(name);
+        }
+        final String regex = getParameter(parameters, "pattern");
+        if (regex != null  &&  !regex.isBlank())
+            names.addAll(proxy.getProxiedNames(Pattern.compile(regex), SNAPSHOT_LIMIT));
+        if (names.isEmpty())
+            throw new Exception("Missing 'names' or 'pattern'");
+        if (names.size() > SNAPSHOT_LIMIT)
+            throw new Exception("More than " + SNAPSHOT_LIMIT + " names");
+
+        // Skip names that the pvlist denies for any connected client
+        final Set<InetAddress> hosts = endpoint.getClientHosts();
+        final List<String> allowed = new ArrayList<>(names.size());
+        for (String name : names)
+            if (! proxy.isInfoPV(name)  &&  endpoint.isAllowed(name, hosts))
+                allowed.add(name);
+        final Map<String, Proxy.Snapshot> values = new HashMap<>();
+        for (Proxy.Snapshot snapshot : proxy.getSnapshot(allowed))
+            values.put(snapshot.name(), snapshot);
+
+        final int N = names.size();
+        final String[] value = new String[N], severity = new String[N], status = new String[N], source = new String[N];
+        final long[] secs = new long[N];
+        final int[] nanos = new int[N];
+        for (int i=0; i<N; ++i)
+        {
+            final Proxy.Snapshot snapshot = values.get(names.get(i));
+            if (snapshot == null)
+            {
+                value[i] = severity[i] = status[i] = "";
+                source[i] = "denied";
+            }
+            else if (snapshot.value() == null)
+            {
+                value[i] = severity[i] = status[i] = "";
+                source[i] = "disconnected";
+            }
+            else
+            {
+                value[i] = formatValue(snapshot.value());
+                final Alarm alarm = Alarm.alarmOf(snapshot.value());
+                severity[i] = alarm.getSeverity().name();
+                status[i] = alarm.getName();
+                final Instant time = Time.timeOf(snapshot.value()).getTimestamp();
+                secs[i] = time.getEpochSecond();
+                nanos[i] = time.getNano();
+                source[i] = snapshot.proxied() ? "proxy" : "read";
+            }
+        }
+        return new PVAStructure("snapshot", PVATable.STRUCT_NAME,
+                new PVAStringArray(PVATable.LABELS_NAME, "PV", "Value", "Severity", "Status", "Seconds", "Nanoseconds", "Source"),
+                new PVAStructure(PVATable.VALUE_NAME, "",
+                        new PVAStringArray("pv", names.toArray(new String[N])),
+                        new PVAStringArray("value", value),
+                        new PVAStringArray("severity", severity),
+                        new PVAStringArray("status", status),
+                        new PVALongArray("secondsPastEpoch", false, secs),
+                        new PVAIntArray("nanoseconds", false, nanos),
+                        new PVAStringArray("source", source)));
+    }
+
+    /** @param value {@link VType}
+     *  @return Value as text, arrays as "[count] first, elements, ..."
+     */
+    private static String formatValue(final VType value)
+    {
+        if (value instanceof VNumber val)
+            return String.valueOf(val.getValue());
+        if (value instanceof VEnum val)
+            return val.getValue();
+        if (value instanceof VString val)
+            return val.getValue();
+        if (value instanceof VNumberArray val)
+        {
+            final ListNumber data = val.getData();
+            final boolean floating = val instanceof VDoubleArray  ||  val instanceof VFloatArray;
+            final int N = data.size();
+            final StringBuilder buf = new StringBuilder();
+            buf.append('[').append(N).append(']');
+            for (int i=0; i<N  &&  i<SNAPSHOT_ARRAY_ELEMENTS; ++i)
+            {
+                buf.append(i == 0 ? " " : ", ");
+                if (floating)
+                    buf.append(data.getDouble(i));
+                else
+                    buf.append(data.getLong(i));
+            }
+            if (N > SNAPSHOT_ARRAY_ELEMENTS)
+                buf.append(", ...");
+            return buf.toString();
+        }
+        return String.valueOf(value);
+    }
+
+    /** List disconnected PVs
+     *
+     *  Optional parameters:
+     *  'pattern' regular expression for PV names,
+     *  'offset' number of matching PVs to skip,
+     *  'limit' maximum number of PVs to return.
+     *
+     *  Only lists PVs requested via this endpoint
+     *  and allowed by its pvlist for every connected client.
+     *
+     *  @param parameters Optional parameters
+     *  @return Table of disconnected PVs, sorted by name, with time since disconnect
      *  @throws Exception on error
      */
     private PVAStructure listDisconnected(final PVAStructure parameters) throws Exception
     {
+        final String regex = getParameter(parameters, "pattern");
+        final Pattern pattern = regex == null  ||  regex.isBlank() ? null : Pattern.compile(regex);
+        final int offset = Math.max(0, getParameter(parameters, "offset", 0));
+        final int limit = Math.max(0, getParameter(parameters, "limit", DISCONNECTED_LIMIT));
+
+        final List<Proxy.Disconnected> disconnected = new ArrayList<>();
+        final int total = proxy.getDisconnectedPVs(endpoint, endpoint.getClientHosts(), pattern, offset, limit, disconnected);
+
+        final int N = disconnected.size();
+        final String[] names = new String[N];
+        final double[] secs = new double[N];
+        final long now = System.currentTimeMillis();
+        for (int i=0; i<N; ++i)
+        {
+            names[i] = disconnected.get(i).name();
+            secs[i] = (now - disconnected.get(i).since()) / 1000.0;
+        }
+
         return new PVAStructure("disconnected", PVATable.STRUCT_NAME,
-                new PVAStringArray(PVATable.LABELS_NAME, "PV"),
+                new PVAStringArray(PVATable.LABELS_NAME, "PV", "Disconnected [s]"),
                 new PVAStructure(PVATable.VALUE_NAME, "",
-                        new PVAStringArray("disconnected", proxy.getDisconnectedPVs())));
+                        new PVAStringArray("disconnected", names),
+                        new PVADoubleArray("secs", secs)),
+                new PVAString("descriptor", String.format("%d-%d of %d", offset, offset + N, total)));
     }
 }
@@ -24,8 +24,44 @@ public class ProxyPreferences
 
     @Preference public static int main_loop_ms;
 
+    @Preference public static boolean pva_passthrough;
+
     @Preference public static double unused_pv_purge_sec;
 
+    @Preference public static double search_score_sec;
+
+    @Preference public static double search_score_max;
+
+    @Preference public static int pv_memory_budget_mb;
+
+    @Preference public static String record_file;
+
+    @Preference public static int record_max_mb;
+
+    @Preference public static String value_cache_file;
+
+    @Preference public static double value_cache_save_sec;
+
+    @Preference public static double config_check_sec;
+
+    @Preference public static int max_shedding_level;
+
+    @Preference public static int ca_contexts;
+
+    @Preference public static int group_align_ms;
+
+    @Preference public static String history_pattern;
+
+    @Preference public static int history_size;
+
+    @Preference public static int history_budget_mb;
+
+    @Preference public static String monitor_mask_file;
+
+    @Preference public static int metric_history_sec;
+
+    @Preference public static int snapshot_timeout_ms;
+
     static
     {
         AnnotatedPreferences.initialize(ProxyPreferences.class, "/pvaify_preferences.properties");
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+
+/** Start client side of newly searched PVs in batches
+ *
+ *  The PVA server calls the search handler for each name
+ *  of a search request on its UDP thread.
+ *  Creating the CA channel right there delays the handling
+ *  of the remaining names in the request and of following requests.
+ *
+ *  <p>The search handler thus only registers the PV and queues it here.
+ *  A separate thread then starts all PVs that have been queued
+ *  by a burst of searches, for example when a display opens,
+ *  back-to-back, which allows the CA client library to combine
+ *  their searches into fewer packets.
+ *
+ *  @author agent
+ */
+class SearchBatcher
+{
+    /** Queued PVs */
+    private final LinkedBlockingQueue<ProxiedPV> queue = new LinkedBlockingQueue<>();
+
+    private final Thread thread;
+
+    SearchBatcher()
+    {
+        thread = new Thread(this::run, "SearchBatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** @param pv PV to start */
+    void submit(final ProxiedPV pv)
+    {
+        queue.add(pv);
+    }
+
+    private void run()
+    {
+        final List<ProxiedPV> batch = new ArrayList<>();
+        try
+        {
+            while (true)
+            {
+                // Wait for the first PV, then grab all that have been queued since
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (ProxiedPV pv : batch)
+                {
+                    try
+                    {
+                        // Might fail to connect, then dispose the PV and remove it from `pvs`
+                        pv.start();
+                    }
+                    catch (Exception ex)
+                    {
+                        logger.log(Level.WARNING, "Cannot create client PV " + pv.getName(), ex);
+                    }
+                }
+                final int N = batch.size();
+                logger.log(Level.FINE, () -> "Started batch of " + N + " PVs");
+                batch.clear();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // Closed
+        }
+    }
+
+    /** Stop the thread, dropping PVs that have not been started */
+    void close()
+    {
+        queue.clear();
+        thread.interrupt();
+        try
+        {
+            thread.join(2000);
+        }
+        catch (InterruptedException ex)
+        {
+            // Ignore, closing anyway
+        }
+    }
+}
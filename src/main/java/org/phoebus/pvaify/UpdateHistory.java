@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.time.Instant;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Time;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VType;
+
+/** Recent history of a scalar PV
+ *
+ *  Ring buffer of the last N updates received on the client side,
+ *  kept in primitive arrays to avoid boxing each sample.
+ *  Array and string values are not recorded.
+ *
+ *  @author agent
+ */
+class UpdateHistory
+{
+    /** Memory used per sample [bytes] */
+    static final int BYTES_PER_SAMPLE = Long.BYTES + Integer.BYTES + Double.BYTES + Short.BYTES;
+
+    /** Samples, oldest first
+     *  @param seconds Seconds of time stamp since epoch
+     *  @param nanos Nanoseconds of time stamp
+     *  @param values Values
+     *  @param severities Alarm severities
+     */
+    record Samples(long[] seconds, int[] nanos, double[] values, short[] severities)
+    {
+    }
+
+    // Ring buffer, SYNC on this
+    private final long[] seconds;
+    private final int[] nanos;
+    private final double[] values;
+    private final short[] severities;
+
+    /** Index for next sample */
+    private int next = 0;
+
+    /** Number of valid samples */
+    private int count = 0;
+
+    /** @param size Number of samples to keep */
+    UpdateHistory(final int size)
+    {
+        seconds = new long[size];
+        nanos = new int[size];
+        values = new double[size];
+        severities = new short[size];
+    }
+
+    /** @param value Value received on client side, ignored unless it's a scalar number or enum */
+    void add(final VType value)
+    {
+        final double number;
+        if (value instanceof VNumber val)
+            number = val.getValue().doubleValue();
+        else if (value instanceof VEnum val)
+            number = val.getIndex();
+        else
+            return;
+        final Instant time = Time.timeOf(value).getTimestamp();
+        final short severity = (short) Alarm.alarmOf(value).getSeverity().ordinal();
+        synchronized (this)
+        {
+            seconds[next] = time.getEpochSecond();
+            nanos[next] = time.getNano();
+            values[next] = number;
+            severities[next] = severity;
+            next = (next + 1) % values.length;
+            if (count < values.length)
+                ++count;
+        }
+    }
+
+    /** @param start Start time, inclusive
+     *  @param end End time, inclusive
+     *  @return Samples within the time range, oldest first
+     */
+    synchronized Samples get(final Instant start, final Instant end)
+    {
+        final int oldest = (next - count + values.length) % values.length;
+        // Count matching samples, then copy them
+        int N = 0;
+        for (int i=0; i<count; ++i)
+            if (isInRange((oldest + i) % values.length, start, end))
+                ++N;
+        final Samples samples = new Samples(new long[N], new int[N], new double[N], new short[N]);
+        int s = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final int index = (oldest + i) % values.length;
+            if (isInRange(index, start, end))
+            {
+                samples.seconds()[s] = seconds[index];
+                samples.nanos()[s] = nanos[index];
+                samples.values()[s] = values[index];
+                samples.severities()[s] = severities[index];
+                ++s;
+            }
+        }
+        return samples;
+    }
+
+    private boolean isInRange(final int index, final Instant start, final Instant end)
+    {
+        final long sec = seconds[index];
+        final int nano = nanos[index];
+        return (sec > start.getEpochSecond()  ||  (sec == start.getEpochSecond()  &&  nano >= start.getNano()))  &&
+               (sec < end.getEpochSecond()    ||  (sec == end.getEpochSecond()    &&  nano <= end.getNano()));
+    }
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+
+/** Record client side updates to a binary log
+ *
+ *  Updates are queued by the client side and written
+ *  by a background thread into a memory-mapped file.
+ *
+ *  <p>File format, big endian:
+ *  <pre>
+ *  long MAGIC
+ *  long start time [epoch millis]
+ *  records...
+ *  byte END
+ *  </pre>
+ *
+ *  A name record defines the ID for a PV name:
+ *  <pre>
+ *  byte NAME, int id, int length, UTF-8 name
+ *  </pre>
+ *
+ *  A value record has the arrival time of a value
+ *  relative to the start of the recording, followed by the
+ *  {@link VTypeCodec} encoded value:
+ *  <pre>
+ *  byte VALUE, int id, long arrival [nanosecs], value
+ *  </pre>
+ *
+ *  @author agent
+ */
+class UpdateRecorder
+{
+    /** File magic, "PVAIFYR1" */
+    static final long MAGIC = 0x5056414946595231L;
+
+    /** Record tags */
+    static final byte END = 0, NAME = 1, VALUE = 2;
+
+    /** Maximum file size in MB, limited by {@link UpdateReplay} mapping the whole file */
+    static final int MAX_MB = Integer.MAX_VALUE / (1024 * 1024);
+
+    /** Size of each memory-mapped region */
+    private static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    /** Maximum estimated size of queued updates */
+    private static final long MAX_QUEUED_BYTES = 64 * 1024 * 1024;
+
+    /** Queued update
+     *  @param bytes Estimated size of the value
+     */
+    private record Update(String name, long nanos, VType value, long bytes)
+    {
+    }
+
+    /** Start of recording [System.nanoTime] */
+    private final long start_nanos = System.nanoTime();
+
+    /** Queue of updates to write, bounded by 'queued_bytes' */
+    private final BlockingQueue<Update> queue = new LinkedBlockingQueue<>();
+
+    /** Estimated size of the values in 'queue' */
+    private final AtomicLong queued_bytes = new AtomicLong();
+
+    /** Counter for updates that were dropped because queue was full */
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private final FileChannel channel;
+
+    /** Maximum file size */
+    private final long max_size;
+
+    /** IDs of PV names written to the log */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** File offset of 'region' */
+    private long region_start = 0;
+
+    /** Currently mapped region of the file */
+    private MappedByteBuffer region;
+
+    /** Buffer for encoding one record */
+    private ByteBuffer record = ByteBuffer.allocate(64 * 1024);
+
+    private final Thread thread;
+
+    /** Accept new updates? */
+    private volatile boolean run = true;
+
+    /** Write queued updates before closing the file? */
+    private volatile boolean drain = true;
+
+    /** @param file Path of file to create
+     *  @param max_mb Maximum file size in MB, 1 to {@link #MAX_MB}
+     *  @throws Exception on error
+     */
+    UpdateRecorder(final Path file, final int max_mb) throws Exception
+    {
+        if (max_mb < 1  ||  max_mb > MAX_MB)
+            throw new Exception("Maximum recording size must be 1 to " + MAX_MB + " MB, got " + max_mb);
+        max_size = max_mb * 1024L * 1024L;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        region = channel.map(MapMode.READ_WRITE, region_start, Math.min(REGION_SIZE, max_size));
+        region.putLong(MAGIC);
+        region.putLong(System.currentTimeMillis());
+
+        thread = new Thread(this::write, "UpdateRecorder");
+        thread.setDaemon(true);
+        thread.start();
+        logger.log(Level.INFO, "Recording client side updates to " + file);
+    }
+
+    /** Called on client side, must not block
+     *
+     *  <p>Drops the update when the queue already holds
+     *  more than {@link #MAX_QUEUED_BYTES}, so a slow disk
+     *  combined with large arrays cannot exhaust the heap.
+     *
+     *  @param name PV name
+     *  @param value Value received on client side
+     */
+    void record(final String name, final VType value)
+    {
+        if (! run)
+            return;
+        final long bytes = VTypeCodec.estimateSize(value);
+        if (queued_bytes.addAndGet(bytes) > MAX_QUEUED_BYTES)
+        {
+            queued_bytes.addAndGet(-bytes);
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(new Update(name, System.nanoTime(), value, bytes));
+    }
+
+    /** Background thread that writes queued updates */
+    private void write()
+    {
+        try
+        {
+            while (run  ||  (drain  &&  !queue.isEmpty()))
+            {
+                final Update update = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (update == null)
+                    continue;
+                queued_bytes.addAndGet(-update.bytes);
+                if (! write(update))
+                    break;
+                final int lost = dropped.getAndSet(0);
+                if (lost > 0)
+                    logger.log(Level.WARNING, "Update recorder queue overrun, dropped " + lost + " updates");
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Update recorder failed", ex);
+        }
+        finally
+        {
+            run = false;
+            queue.clear();
+            queued_bytes.set(0);
+            finish();
+        }
+    }
+
+    /** Mark end, then trim file to what's been written */
+    private void finish()
+    {
+        try
+        {
+            region.put(END);
+            final long size = region_start + region.position();
+            region.force();
+            channel.truncate(size);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Update recorder cannot write end of file", ex);
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Update recorder cannot close file", ex);
+        }
+    }
+
+    /** @param update Update to write
+     *  @return <code>false</code> when file is full
+     *  @throws Exception on error
+     */
+    private boolean write(final Update update) throws Exception
+    {
+        Integer id = ids.get(update.name);
+        if (id == null)
+        {
+            id = ids.size();
+            ids.put(update.name, id);
+            record.clear();
+            record.put(NAME);
+            record.putInt(id);
+            VTypeCodec.encodeString(record, update.name);
+            if (! append())
+                return false;
+        }
+
+        while (true)
+        {
+            try
+            {
+                record.clear();
+                record.put(VALUE);
+                record.putInt(id);
+                record.putLong(update.nanos - start_nanos);
+                VTypeCodec.encode(record, update.value);
+                break;
+            }
+            catch (BufferOverflowException ex)
+            {   // Large array, grow record buffer
+                record = ByteBuffer.allocate(record.capacity() * 2);
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.FINE, "Cannot record " + update.name, ex);
+                return true;
+            }
+        }
+        return append();
+    }
+
+    /** Append 'record' to file, mapping the next region as needed
+     *  @return <code>false</code> when file is full
+     *  @throws Exception on error
+     */
+    private boolean append() throws Exception
+    {
+        record.flip();
+        // Keep one byte for END marker
+        if (region.remaining() < record.remaining() + 1)
+        {
+            region.force();
+            region_start += region.position();
+            // Previous region kept one byte, so region_start < max_size
+            final long needed = record.remaining() + 1;
+            final long size = Math.min(Math.max(REGION_SIZE, needed), max_size - region_start);
+            if (size < needed)
+            {
+                logger.log(Level.WARNING, "Update recorder reached maximum file size, stopping");
+                region = channel.map(MapMode.READ_WRITE, region_start, 1);
+                return false;
+            }
+            region = channel.map(MapMode.READ_WRITE, region_start, size);
+        }
+        region.put(record);
+        return true;
+    }
+
+    /** Stop recording
+     *
+     *  <p>Writes remaining updates for up to 5 seconds,
+     *  then drops what's left in the queue.
+     *  In either case the file is closed with an END marker
+     *  before this method returns.
+     */
+    void close()
+    {
+        run = false;
+        try
+        {
+            thread.join(5000);
+            if (thread.isAlive())
+            {
+                logger.log(Level.WARNING, "Update recorder dropping " + queue.size() + " queued updates");
+                drain = false;
+                thread.join();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // Ignore, closing down
+        }
+    }
+}
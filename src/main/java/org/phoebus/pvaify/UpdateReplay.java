@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+
+/** Replay updates recorded by {@link UpdateRecorder}
+ *
+ *  Feeds the recorded values to the proxy as if they
+ *  had been received on the client side, without any CA network.
+ *
+ *  <p>The whole file is memory-mapped, which limits
+ *  recordings to {@link UpdateRecorder#MAX_MB}.
+ *
+ *  @author agent
+ */
+class UpdateReplay
+{
+    private final BiConsumer<String, VType> target;
+    private final Path file;
+    private final double speed;
+    private final Thread thread;
+    private volatile boolean run = true;
+
+    /** @param target Receives each replayed PV name and value, typically {@link Proxy#replay}
+     *  @param file File written by {@link UpdateRecorder}
+     *  @param speed 1.0 for original speed, 10 to replay 10 times faster, 0 for as fast as possible
+     */
+    UpdateReplay(final BiConsumer<String, VType> target, final Path file, final double speed)
+    {
+        this.target = target;
+        this.file = file;
+        this.speed = speed;
+        thread = new Thread(this::replay, "UpdateReplay");
+        thread.setDaemon(true);
+    }
+
+    /** Start replay */
+    void start()
+    {
+        thread.start();
+    }
+
+    /** Replay on the calling thread
+     *  @return Number of replayed updates
+     */
+    int replay()
+    {
+        logger.log(Level.INFO, "Replaying " + file + " at speed " + speed);
+        final long start = System.nanoTime();
+        int count = 0;
+        try
+        (
+            final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)
+        )
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new Exception("Cannot replay files larger than 2GB");
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getLong() != UpdateRecorder.MAGIC)
+                throw new Exception("Not a recording");
+            buffer.getLong();
+
+            final List<String> names = new ArrayList<>();
+            while (run  &&  buffer.hasRemaining())
+            {
+                final byte tag = buffer.get();
+                if (tag == UpdateRecorder.END)
+                    break;
+                else if (tag == UpdateRecorder.NAME)
+                {
+                    final int id = buffer.getInt();
+                    if (id != names.size())
+                        throw new Exception("Expected name ID " + names.size() + ", got " + id);
+                    names.add(VTypeCodec.decodeString(buffer));
+                }
+                else if (tag == UpdateRecorder.VALUE)
+                {
+                    final String name = names.get(buffer.getInt());
+                    final long arrival = buffer.getLong();
+                    final VType value = VTypeCodec.decode(buffer);
+                    if (speed > 0)
+                    {
+                        final long delay = start + (long) (arrival / speed) - System.nanoTime();
+                        if (delay > 0)
+                            TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                    target.accept(name, value);
+                    ++count;
+                }
+                else
+                    throw new Exception("Unknown record tag " + tag + " at " + (buffer.position() - 1));
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Replay of " + file + " failed", ex);
+        }
+        final double secs = (System.nanoTime() - start) / 1e9;
+        logger.log(Level.INFO, String.format("Replayed %d updates in %.1f seconds", count, secs));
+        return count;
+    }
+
+    /** Stop replay */
+    void close()
+    {
+        run = false;
+    }
+}
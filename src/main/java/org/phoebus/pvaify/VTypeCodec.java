@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByteArray;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloatArray;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VIntArray;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VShortArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+
+/** Compact binary encoding of {@link VType}
+ *
+ *  Handles the value types that {@link DataUtil} can proxy,
+ *  with time stamp, alarm and basic display info.
+ *
+ *  @author agent
+ */
+class VTypeCodec
+{
+    /** Type codes */
+    static final byte DOUBLE = 1, INT = 2, STRING = 3, ENUM = 4,
+                      DOUBLE_ARRAY = 5, FLOAT_ARRAY = 6, INT_ARRAY = 7, SHORT_ARRAY = 8, BYTE_ARRAY = 9;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmStatus[] STATI = AlarmStatus.values();
+
+    /** @param value {@link VType}
+     *  @return Type code
+     *  @throws Exception if type is not handled
+     */
+    static byte getTypeCode(final VType value) throws Exception
+    {
+        if (value instanceof VDouble)
+            return DOUBLE;
+        if (value instanceof VNumber)
+            return INT;
+        if (value instanceof VString)
+            return STRING;
+        if (value instanceof VEnum)
+            return ENUM;
+        if (value instanceof VDoubleArray)
+            return DOUBLE_ARRAY;
+        if (value instanceof VFloatArray)
+            return FLOAT_ARRAY;
+        if (value instanceof VIntArray)
+            return INT_ARRAY;
+        if (value instanceof VShortArray)
+            return SHORT_ARRAY;
+        if (value instanceof VByteArray)
+            return BYTE_ARRAY;
+        throw new Exception("Value type is not handled: " + value);
+    }
+
+    /** Estimate size of encoded value
+     *
+     *  <p>Counts array elements and a fixed allowance for
+     *  time, alarm, display and scalar value, but not strings.
+     *  Fast enough to be called for each received update.
+     *
+     *  @param value {@link VType}
+     *  @return Estimated number of bytes
+     */
+    static long estimateSize(final VType value)
+    {
+        final long header = 100;
+        if (value instanceof VNumberArray val)
+        {
+            final long N = val.getData().size();
+            if (value instanceof VDoubleArray)
+                return header + 8 * N;
+            if (value instanceof VFloatArray  ||  value instanceof VIntArray)
+                return header + 4 * N;
+            if (value instanceof VShortArray)
+                return header + 2 * N;
+            return header + N;
+        }
+        return header;
+    }
+
+    /** @param buffer Buffer
+     *  @param text Text to write
+     */
+    static void encodeString(final ByteBuffer buffer, final String text)
+    {
+        final byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /** @param buffer Buffer
+     *  @return Text that was read
+     */
+    static String decodeString(final ByteBuffer buffer)
+    {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** @param buffer Buffer, must have sufficient room
+     *  @param value {@link VType} to write
+     *  @throws BufferOverflowException if buffer is too small
+     *  @throws Exception if value type is not handled
+     */
+    static void encode(final ByteBuffer buffer, final VType value) throws Exception
+    {
+        final byte type = getTypeCode(value);
+        buffer.put(type);
+
+        final Instant time = Time.timeOf(value).getTimestamp();
+        buffer.putLong(time.getEpochSecond());
+        buffer.putInt(time.getNano());
+
+        final Alarm alarm = Alarm.alarmOf(value);
+        buffer.put((byte) alarm.getSeverity().ordinal());
+        buffer.put((byte) alarm.getStatus().ordinal());
+        encodeString(buffer, alarm.getName());
+
+        if (type != STRING  &&  type != ENUM)
+        {
+            Display display = Display.displayOf(value);
+            if (display == null)
+                display = Display.none();
+            encodeString(buffer, display.getUnit());
+            buffer.putInt(display.getFormat().getMinimumFractionDigits());
+            buffer.putDouble(display.getDisplayRange().getMinimum());
+            buffer.putDouble(display.getDisplayRange().getMaximum());
+        }
+
+        if (value instanceof VDouble val)
+            buffer.putDouble(val.getValue());
+        else if (value instanceof VNumber val)
+            buffer.putInt(val.getValue().intValue());
+        else if (value instanceof VString val)
+            encodeString(buffer, val.getValue());
+        else if (value instanceof VEnum val)
+        {
+            buffer.putInt(val.getIndex());
+            final List<String> choices = val.getDisplay().getChoices();
+            buffer.putInt(choices.size());
+            for (String choice : choices)
+                encodeString(buffer, choice);
+        }
+        else if (value instanceof VNumberArray val)
+        {
+            final ListNumber data = val.getData();
+            final int N = val.getSizes().getInt(0);
+            buffer.putInt(N);
+            switch (type)
+            {
+            case DOUBLE_ARRAY:
+                for (int i=0; i<N; ++i)
+                    buffer.putDouble(data.getDouble(i));
+                break;
+            case FLOAT_ARRAY:
+                for (int i=0; i<N; ++i)
+                    buffer.putFloat(data.getFloat(i));
+                break;
+            case INT_ARRAY:
+                for (int i=0; i<N; ++i)
+                    buffer.putInt(data.getInt(i));
+                break;
+            case SHORT_ARRAY:
+                for (int i=0; i<N; ++i)
+                    buffer.putShort(data.getShort(i));
+                break;
+            default:
+                for (int i=0; i<N; ++i)
+                    buffer.put(data.getByte(i));
+            }
+        }
+    }
+
+    /** @param buffer Buffer
+     *  @return {@link VType} that was read
+     *  @throws Exception on error
+     */
+    static VType decode(final ByteBuffer buffer) throws Exception
+    {
+        final byte type = buffer.get();
+
+        final long secs = buffer.getLong();
+        final int nano = buffer.getInt();
+        final Time time = Time.of(Instant.ofEpochSecond(secs, nano));
+
+        final AlarmSeverity severity = SEVERITIES[buffer.get()];
+        final AlarmStatus status = STATI[buffer.get()];
+        final Alarm alarm = Alarm.of(severity, status, decodeString(buffer));
+
+        Display display = Display.none();
+        if (type != STRING  &&  type != ENUM)
+        {
+            final String units = decodeString(buffer);
+            final int precision = buffer.getInt();
+            final double min = buffer.getDouble(), max = buffer.getDouble();
+            display = DataUtil.createDisplay(min, max, units, precision);
+        }
+
+        switch (type)
+        {
+        case DOUBLE:
+            return VDouble.of(buffer.getDouble(), alarm, time, display);
+        case INT:
+            return VInt.of(buffer.getInt(), alarm, time, display);
+        case STRING:
+            return VString.of(decodeString(buffer), alarm, time);
+        case ENUM:
+        {
+            final int index = buffer.getInt();
+            final int N = buffer.getInt();
+            final List<String> choices = new ArrayList<>(N);
+            for (int i=0; i<N; ++i)
+                choices.add(decodeString(buffer));
+            return VEnum.of(index, EnumDisplay.of(choices), alarm, time);
+        }
+        case DOUBLE_ARRAY:
+        {
+            final double[] data = new double[buffer.getInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = buffer.getDouble();
+            return VNumberArray.of(ArrayDouble.of(data), alarm, time, display);
+        }
+        case FLOAT_ARRAY:
+        {
+            final float[] data = new float[buffer.getInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = buffer.getFloat();
+            return VNumberArray.of(ArrayFloat.of(data), alarm, time, display);
+        }
+        case INT_ARRAY:
+        {
+            final int[] data = new int[buffer.getInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = buffer.getInt();
+            return VNumberArray.of(ArrayInteger.of(data), alarm, time, display);
+        }
+        case SHORT_ARRAY:
+        {
+            final short[] data = new short[buffer.getInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = buffer.getShort();
+            return VNumberArray.of(ArrayShort.of(data), alarm, time, display);
+        }
+        case BYTE_ARRAY:
+        {
+            final byte[] data = new byte[buffer.getInt()];
+            buffer.get(data);
+            return VNumberArray.of(ArrayByte.of(data), alarm, time, display);
+        }
+        default:
+            throw new Exception("Unknown type code " + type);
+        }
+    }
+}
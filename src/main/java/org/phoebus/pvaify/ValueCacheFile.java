@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.phoebus.pvaify.Proxy.logger;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+
+/** File with the last value, type and meta data of proxied PVs
+ *
+ *  Allows creating server PVs right after a restart,
+ *  before the client side connects.
+ *
+ *  <p>File format, big endian:
+ *  <pre>
+ *  long MAGIC
+ *  int count
+ *  count times: int length, UTF-8 name, {@link VTypeCodec} encoded value
+ *  </pre>
+ *
+ *  <p>Values are collected by the caller,
+ *  then encoded and written by a background thread.
+ *
+ *  @author agent
+ */
+class ValueCacheFile
+{
+    /** File magic, "PVAIFYC1" */
+    private static final long MAGIC = 0x5056414946594331L;
+
+    private final Path file;
+
+    /** Thread that encodes and writes the file */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable ->
+    {
+        final Thread thread = new Thread(runnable, "ValueCacheFile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Is a save queued or running? */
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    /** @param file Path of the cache file */
+    ValueCacheFile(final Path file)
+    {
+        this.file = file;
+    }
+
+    /** @return Values by PV name, empty if there is no cache file */
+    Map<String, VType> load()
+    {
+        final Map<String, VType> values = new LinkedHashMap<>();
+        if (! Files.exists(file))
+            return values;
+        try
+        (
+            final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)
+        )
+        {
+            final MappedByteBuffer data = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (data.getLong() != MAGIC)
+                throw new Exception("Not a value cache file");
+            final int count = data.getInt();
+            for (int i=0; i<count; ++i)
+            {
+                final String name = VTypeCodec.decodeString(data);
+                values.put(name, VTypeCodec.decode(data));
+            }
+            logger.log(Level.INFO, "Loaded " + count + " cached values from " + file);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot load cached values from " + file, ex);
+        }
+        return values;
+    }
+
+    /** Save values in background thread
+     *
+     *  Skipped if the previous save is still running,
+     *  the next call will then save more recent values.
+     *
+     *  @param values Values by PV name, must not be modified by caller
+     *  @return <code>true</code> if save was started
+     */
+    boolean saveInBackground(final Map<String, VType> values)
+    {
+        if (! busy.compareAndSet(false, true))
+        {
+            logger.log(Level.FINE, () -> "Skipping save to " + file + ", previous save still running");
+            return false;
+        }
+        writer.execute(() ->
+        {
+            try
+            {
+                save(values);
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot save cached values", ex);
+            }
+            finally
+            {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Save values
+     *
+     *  Writes a temporary file which then replaces
+     *  the cache file, so a crash will not leave
+     *  a partial cache file.
+     *
+     *  @param values Values by PV name
+     *  @throws Exception on error
+     */
+    void save(final Map<String, VType> values) throws Exception
+    {
+        // Buffer is only used for this save, so a large one
+        // doesn't remain allocated until the next save
+        long estimate = 16;
+        for (Map.Entry<String, VType> entry : values.entrySet())
+            estimate += 4 + 3 * entry.getKey().length() + VTypeCodec.estimateSize(entry.getValue());
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(estimate, Integer.MAX_VALUE - 8));
+        while (true)
+        {
+            try
+            {
+                buffer.clear();
+                buffer.putLong(MAGIC);
+                buffer.putInt(0);
+                int count = 0;
+                for (Map.Entry<String, VType> entry : values.entrySet())
+                {
+                    final int start = buffer.position();
+                    try
+                    {
+                        VTypeCodec.encodeString(buffer, entry.getKey());
+                        VTypeCodec.encode(buffer, entry.getValue());
+                        ++count;
+                    }
+                    catch (BufferOverflowException ex)
+                    {
+                        throw ex;
+                    }
+                    catch (Exception ex)
+                    {   // Skip value types that can't be encoded
+                        buffer.position(start);
+                    }
+                }
+                buffer.putInt(Long.BYTES, count);
+                break;
+            }
+            catch (BufferOverflowException ex)
+            {   // Estimate doesn't include strings within the values
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        buffer.flip();
+
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try
+        (
+            final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                         StandardOpenOption.WRITE)
+        )
+        {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.log(Level.FINE, () -> "Saved " + values.size() + " cached values to " + file);
+    }
+
+    /** Wait for a running save to complete, then stop the background thread */
+    void close()
+    {
+        writer.shutdown();
+        try
+        {
+            if (! writer.awaitTermination(30, TimeUnit.SECONDS))
+                logger.log(Level.WARNING, "Timeout saving cached values to " + file);
+        }
+        catch (InterruptedException ex)
+        {
+            // Ignore, closing down
+        }
+    }
+}
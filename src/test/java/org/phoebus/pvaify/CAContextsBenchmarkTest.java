@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.phoebus.pv.PV;
+
+import com.cosylab.epics.caj.cas.ProcessVariableEventDispatcher;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
+
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.cas.ServerContext;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/** Compare client side update rate for 1, 2 and 4 {@link CAContexts}
+ *
+ *  Runs an in-process CA server on an ephemeral port
+ *  where a writer thread updates {@link #PV_COUNT} PVs as fast as it can,
+ *  and counts the updates received by the client contexts.
+ *  Prints the rate of each setting relative to a single context.
+ *
+ *  <p>Tagged as benchmark, so it's not part of the default test run.
+ *  Run with <code>mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=CAContextsBenchmarkTest</code>,
+ *  adding <code>-Dca_benchmark_sec=30</code> for a longer run per setting.
+ *
+ *  @author agent
+ */
+@Tag("benchmark")
+public class CAContextsBenchmarkTest
+{
+    /** Number of PVs */
+    private static final int PV_COUNT = 1000;
+
+    /** Seconds per setting */
+    private static final int SECONDS = Integer.getInteger("ca_benchmark_sec", 3);
+
+    /** @param contexts Number of contexts
+     *  @param pvs Server PVs
+     *  @return Received updates per second
+     */
+    private double measure(final int contexts, final List<MemoryProcessVariable> pvs) throws Exception
+    {
+        final CAContexts ca = new CAContexts(contexts);
+        final List<PV> clients = new ArrayList<>();
+        final List<Disposable> subs = new ArrayList<>();
+        final LongAdder received = new LongAdder();
+        final AtomicBoolean run = new AtomicBoolean(true);
+        final Thread writer = new Thread(() ->
+        {
+            double value = 0;
+            try
+            {
+                while (run.get())
+                {
+                    value += 1;
+                    for (MemoryProcessVariable pv : pvs)
+                        pv.write(new DBR_Double(new double[] { value }), null);
+                }
+            }
+            catch (Exception ex)
+            {
+                ex.printStackTrace();
+            }
+        }, "CAWriter");
+        try
+        {
+            for (MemoryProcessVariable pv : pvs)
+            {
+                final PV client = ca.createPV(pv.getName());
+                clients.add(client);
+                subs.add(client.onValueEvent().subscribe(value -> received.increment()));
+            }
+            // Allow PVs to connect, then measure
+            Thread.sleep(2000);
+            writer.start();
+            Thread.sleep(1000);
+            received.reset();
+            final long start = System.nanoTime();
+            Thread.sleep(SECONDS * 1000L);
+            final double rate = received.sum() / ((System.nanoTime() - start) * 1e-9);
+            System.out.format("%d CA contexts: %10.1f updates/s\n", contexts, rate);
+            return rate;
+        }
+        finally
+        {
+            run.set(false);
+            writer.join();
+            for (Disposable sub : subs)
+                sub.dispose();
+            for (PV client : clients)
+                ca.releasePV(client);
+            ca.close();
+        }
+    }
+
+    @Test
+    public void testBenchmark() throws Exception
+    {
+        TestProxy.initLogger();
+        // Server and clients use an ephemeral port on loopback
+        final int port = TestProxy.getFreeTCPPort();
+        System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.server_port", Integer.toString(port));
+        System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.beacon_addr_list", "127.0.0.1");
+        System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.auto_beacon_addr_list", "false");
+        System.setProperty("org.phoebus.pv.ca/addr_list", "127.0.0.1:" + port);
+        System.setProperty("org.phoebus.pv.ca/auto_addr_list", "false");
+
+        final DefaultServerImpl server = new DefaultServerImpl();
+        final List<MemoryProcessVariable> pvs = new ArrayList<>(PV_COUNT);
+        for (int i=0; i<PV_COUNT; ++i)
+        {
+            final ProcessVariableEventDispatcher dispatcher = new ProcessVariableEventDispatcher(null);
+            final MemoryProcessVariable pv = new MemoryProcessVariable(String.format("bench:ca%04d", i),
+                                                                       dispatcher, DBRType.DOUBLE, new double[] { 0.0 });
+            dispatcher.setProcessVariable(pv);
+            server.registerProcessVaribale(pv);
+            pvs.add(pv);
+        }
+        final ServerContext context = JCALibrary.getInstance().createServerContext(JCALibrary.CHANNEL_ACCESS_SERVER_JAVA, server);
+        final Thread server_thread = new Thread(() ->
+        {
+            try
+            {
+                context.run(0);
+            }
+            catch (Exception ex)
+            {
+                ex.printStackTrace();
+            }
+        }, "CAServer");
+        server_thread.setDaemon(true);
+        server_thread.start();
+        try
+        {
+            final int[] settings = { 1, 2, 4 };
+            final double[] rates = new double[settings.length];
+            for (int i=0; i<settings.length; ++i)
+            {
+                rates[i] = measure(settings[i], pvs);
+                assertTrue(rates[i] > 0, "No updates with " + settings[i] + " contexts");
+            }
+            System.out.println("CA contexts   updates/s   relative to 1 context");
+            for (int i=0; i<settings.length; ++i)
+                System.out.format("%11d  %10.1f  %6.2f\n", settings[i], rates[i], rates[i] / rates[0]);
+            // More contexts may not help when the server is the bottleneck,
+            // but they must not lose a large part of the updates
+            for (int i=1; i<settings.length; ++i)
+                assertTrue(rates[i] > rates[0] / 2,
+                           settings[i] + " contexts receive less than half the updates of 1 context");
+        }
+        finally
+        {
+            context.destroy();
+        }
+    }
+}
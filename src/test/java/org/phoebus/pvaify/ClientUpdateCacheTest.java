@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.junit.jupiter.api.Test;
+
+/** Priority lane of the {@link ClientUpdateCache}
+ *  @author agent
+ */
+public class ClientUpdateCacheTest
+{
+    /** @param value Value
+     *  @param severity Alarm severity
+     *  @return {@link VDouble}
+     */
+    private static VDouble createValue(final double value, final AlarmSeverity severity)
+    {
+        final Alarm alarm = severity == AlarmSeverity.NONE
+                          ? Alarm.none()
+                          : Alarm.of(severity, AlarmStatus.RECORD, severity.name());
+        return VDouble.of(value, alarm, Time.of(Instant.now()), Display.none());
+    }
+
+    @Test
+    public void testTransitions() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("cache", "cache:", null)));
+        final ClientUpdateCache cache = new ClientUpdateCache();
+        try
+        {
+            final ProxiedPV pv = new ProxiedPV(proxy, "cache:value");
+            pv.restore(createValue(0, AlarmSeverity.NONE));
+            pv.setState(ProxiedPVState.State.Idle);
+            // Restored data is 'disconnected', send a value without alarm
+            if (pv.prepareUpdate(createValue(0, AlarmSeverity.NONE)))
+                pv.commitUpdate();
+
+            // Same alarm as the data that was sent out: Throttled lane
+            cache.add(pv, createValue(1, AlarmSeverity.NONE));
+            cache.processPriority(System.currentTimeMillis() + 10);
+            assertEquals(0, cache.priority_counter.get());
+
+            // Each transition is queued, including the return to NO_ALARM
+            // that matches the data which was sent out
+            cache.add(pv, createValue(2, AlarmSeverity.MAJOR));
+            cache.add(pv, createValue(3, AlarmSeverity.NONE));
+            cache.add(pv, createValue(4, AlarmSeverity.MINOR));
+            // Same alarm as the last queued transition: Throttled lane
+            cache.add(pv, createValue(5, AlarmSeverity.MINOR));
+            cache.processPriority(System.currentTimeMillis() + 10);
+            assertEquals(3, cache.priority_counter.get());
+            assertEquals(AlarmSeverity.MINOR, Alarm.alarmOf(pv.getSnapshotValue()).getSeverity());
+
+            // Once sent, values are again compared with the data that was sent out
+            cache.add(pv, createValue(6, AlarmSeverity.MINOR));
+            cache.processPriority(System.currentTimeMillis() + 10);
+            assertEquals(3, cache.priority_counter.get());
+            cache.add(pv, createValue(7, AlarmSeverity.NONE));
+            cache.processPriority(System.currentTimeMillis() + 10);
+            assertEquals(4, cache.priority_counter.get());
+            pv.close();
+        }
+        finally
+        {
+            proxy.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.phoebus.pvaify.ConnectTiming.Phase;
+
+/** JUnit test of the {@link ConnectStatistics}
+ *  @author agent
+ */
+public class ConnectStatisticsTest
+{
+    private static int sum(final int[] counts)
+    {
+        int sum = 0;
+        for (int count : counts)
+            sum += count;
+        return sum;
+    }
+
+    @Test
+    public void testBuckets()
+    {
+        assertEquals(0, ConnectStatistics.getBucket(0.0));
+        assertEquals(0, ConnectStatistics.getBucket(0.9));
+        assertEquals(1, ConnectStatistics.getBucket(1.0));
+        assertEquals(1, ConnectStatistics.getBucket(1.9));
+        assertEquals(2, ConnectStatistics.getBucket(2.0));
+        assertEquals(10, ConnectStatistics.getBucket(1000.0));
+        assertEquals(ConnectStatistics.BUCKETS-1, ConnectStatistics.getBucket(1e9));
+
+        assertEquals("<1", ConnectStatistics.getBucketLabel(0));
+        assertEquals("<1024", ConnectStatistics.getBucketLabel(10));
+        assertEquals(">=" + (1 << (ConnectStatistics.BUCKETS-2)), ConnectStatistics.getBucketLabel(ConnectStatistics.BUCKETS-1));
+    }
+
+    @Test
+    public void testAwaitSubscriber()
+    {
+        final ConnectStatistics stats = new ConnectStatistics();
+        final ConnectTiming a = new ConnectTiming(), b = new ConnectTiming();
+        a.mark(Phase.Reply);
+        b.mark(Phase.Reply);
+        stats.awaitSubscriber("a", a);
+        stats.awaitSubscriber("b", b);
+        assertEquals(2, stats.getPendingCount());
+        assertEquals(0, sum(stats.getHistogram(0)));
+
+        // 'a' has a subscriber
+        final long now = System.currentTimeMillis();
+        stats.checkSubscribed(name -> name.equals("a"), now, 60000);
+        assertEquals(1, stats.getPendingCount());
+        assertEquals(1, sum(stats.getHistogram(0)));
+        assertEquals(1, sum(stats.getHistogram(Phase.Subscribe.ordinal())));
+        assertTrue(a.isComplete());
+
+        // 'b' is reported without 'Subscribe' after the timeout
+        stats.checkSubscribed(name -> false, now + 30000, 60000);
+        assertEquals(1, stats.getPendingCount());
+        stats.checkSubscribed(name -> false, now + 60000, 60000);
+        assertEquals(0, stats.getPendingCount());
+        assertEquals(2, sum(stats.getHistogram(0)));
+        assertFalse(b.isComplete());
+
+        final List<ConnectStatistics.Connect> slowest = stats.getSlowest(10);
+        assertEquals(2, slowest.size());
+        assertTrue(slowest.get(0).total_ms() >= slowest.get(1).total_ms());
+    }
+
+    @Test
+    public void testPendingLimit()
+    {
+        final ConnectStatistics stats = new ConnectStatistics();
+        for (int i=0; i<ConnectStatistics.MAX_PENDING + 5; ++i)
+            stats.awaitSubscriber("pv" + i, new ConnectTiming());
+        // Oldest are reported right away
+        assertEquals(ConnectStatistics.MAX_PENDING, stats.getPendingCount());
+        assertEquals(5, sum(stats.getHistogram(0)));
+        assertEquals("pv4", stats.getSlowest(5).stream().map(ConnectStatistics.Connect::name).sorted().toList().get(4));
+    }
+}
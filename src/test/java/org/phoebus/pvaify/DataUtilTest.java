@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStringArray;
+import org.epics.pva.data.PVAStructure;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.junit.jupiter.api.Test;
+
+/** Meta data updates of {@link DataUtil}
+ *  @author agent
+ */
+public class DataUtilTest
+{
+    @Test
+    public void testDisplayUpdate() throws Exception
+    {
+        final PVAStructure data = DataUtil.create("test", VDouble.of(1.0, Alarm.none(), Time.now(), DataUtil.createDisplay(0, 10, "V", 2)));
+        DataUtil.update(data, VDouble.of(2.0, Alarm.none(), Time.now(), DataUtil.createDisplay(-5, 5, "mA", 3)));
+
+        final PVAStructure display = data.get("display");
+        assertEquals(-5.0, ((PVADouble) display.get("limitLow")).get());
+        assertEquals(5.0, ((PVADouble) display.get("limitHigh")).get());
+        assertEquals("mA", ((PVAString) display.get("units")).get());
+        assertEquals(3, ((PVAInt) display.get("precision")).get());
+    }
+
+    @Test
+    public void testEnumLabels() throws Exception
+    {
+        final VEnum off = VEnum.of(0, EnumDisplay.of(List.of("Off", "On")), Alarm.none(), Time.now());
+        final VEnum open = VEnum.of(1, EnumDisplay.of(List.of("Closed", "Open")), Alarm.none(), Time.now());
+        final PVAStructure data = DataUtil.create("test", off);
+
+        // Changed labels don't require a new server PV, they are updated
+        assertTrue(DataUtil.isCompatible(data, open));
+        DataUtil.update(data, open);
+        final PVAStructure value = data.get("value");
+        assertEquals(1, ((PVAInt) value.get("index")).get());
+        assertArrayEquals(new String[] { "Closed", "Open" }, ((PVAStringArray) value.get("choices")).get());
+    }
+}
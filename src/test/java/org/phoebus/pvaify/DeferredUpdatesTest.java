@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/** {@link DeferredUpdates} demo
+ *  @author agent
+ */
+public class DeferredUpdatesTest
+{
+    private static List<String> poll(final DeferredUpdates<String, Integer> deferred, final long now)
+    {
+        final List<String> due = new ArrayList<>();
+        deferred.pollDue(now, (key, value) -> due.add(key + "=" + value));
+        return due;
+    }
+
+    @Test
+    public void testOrder()
+    {
+        final DeferredUpdates<String, Integer> deferred = new DeferredUpdates<>();
+        assertEquals(Long.MAX_VALUE, deferred.getNextDue());
+
+        deferred.defer("b", 1, 200);
+        deferred.defer("a", 1, 100);
+        deferred.defer("c", 1, 300);
+        assertEquals(3, deferred.size());
+        assertEquals(100, deferred.getNextDue());
+
+        // Nothing due, yet
+        assertEquals(List.of(), poll(deferred, 99));
+        // Values come out in order of due time
+        assertEquals(List.of("a=1", "b=1"), poll(deferred, 250));
+        assertEquals(300, deferred.getNextDue());
+        assertEquals(List.of("c=1"), poll(deferred, 1000));
+        assertEquals(0, deferred.size());
+        assertEquals(Long.MAX_VALUE, deferred.getNextDue());
+    }
+
+    @Test
+    public void testReplace()
+    {
+        final DeferredUpdates<String, Integer> deferred = new DeferredUpdates<>();
+
+        // Newer value with same due time replaces older one
+        deferred.defer("a", 1, 100);
+        deferred.defer("a", 2, 100);
+        assertEquals(1, deferred.size());
+        assertEquals(List.of("a=2"), poll(deferred, 100));
+
+        // Newer value with later due time, stale queue entry is skipped
+        deferred.defer("a", 3, 100);
+        deferred.defer("a", 4, 200);
+        assertEquals(200, deferred.getNextDue());
+        assertEquals(List.of(), poll(deferred, 150));
+        assertEquals(List.of("a=4"), poll(deferred, 200));
+
+        // Removed value, for example because a newer one was sent
+        deferred.defer("a", 5, 300);
+        assertEquals(5, deferred.remove("a"));
+        assertNull(deferred.remove("a"));
+        assertEquals(Long.MAX_VALUE, deferred.getNextDue());
+        assertEquals(List.of(), poll(deferred, 1000));
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.data.PVAStructure;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** {@link Endpoint} configuration and separation of endpoints
+ *  @author agent
+ */
+public class EndpointTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final List<Endpoint.Config> configs = Endpoint.Config.load("demo/endpoints.properties");
+        assertEquals(2, configs.size());
+
+        final Endpoint.Config ops = configs.get(0);
+        assertEquals("ops", ops.name());
+        assertEquals("ops:proxy:", ops.prefix());
+        assertEquals("demo/pvaify.pvlist", ops.pvlist_file());
+        assertEquals("demo/pvaify.acf", ops.acf_file());
+        assertEquals("127.0.0.1", ops.intf_addr_list());
+        assertEquals(5076, ops.broadcast_port());
+        assertEquals(5075, ops.server_port());
+        assertEquals(5086, ops.tls_port());
+
+        final Endpoint.Config lab = configs.get(1);
+        assertEquals("lab", lab.name());
+        assertEquals("lab:proxy:", lab.prefix());
+        assertNull(lab.acf_file());
+        assertEquals(5176, lab.broadcast_port());
+    }
+
+    @Test
+    public void testLoadDefaults() throws Exception
+    {
+        final Path file = dir.resolve("minimal.properties");
+        Files.writeString(file, "endpoints= a , ,b\na.prefix=a:\nb.prefix=b:\n");
+        final List<Endpoint.Config> configs = Endpoint.Config.load(file.toString());
+        assertEquals(2, configs.size());
+        assertEquals("b", configs.get(1).name());
+        assertNull(configs.get(1).pvlist_file());
+        assertNull(configs.get(1).intf_addr_list());
+        assertEquals(0, configs.get(1).broadcast_port());
+        assertEquals(0, configs.get(1).server_port());
+        assertEquals(0, configs.get(1).tls_port());
+    }
+
+    @Test
+    public void testLoadErrors() throws Exception
+    {
+        final Path file = dir.resolve("bad.properties");
+
+        Files.writeString(file, "# no endpoints\n");
+        Exception ex = assertThrows(Exception.class, () -> Endpoint.Config.load(file.toString()));
+        assertTrue(ex.getMessage().contains("No 'endpoints'"), ex.getMessage());
+
+        Files.writeString(file, "endpoints=a\n");
+        ex = assertThrows(Exception.class, () -> Endpoint.Config.load(file.toString()));
+        assertTrue(ex.getMessage().contains("a.prefix"), ex.getMessage());
+
+        final StringBuilder many = new StringBuilder("endpoints=");
+        for (int i=0; i<=Endpoint.MAX_ENDPOINTS; ++i)
+            many.append("e").append(i).append(',');
+        many.append('\n');
+        for (int i=0; i<=Endpoint.MAX_ENDPOINTS; ++i)
+            many.append("e").append(i).append(".prefix=e").append(i).append(":\n");
+        Files.writeString(file, many.toString());
+        ex = assertThrows(Exception.class, () -> Endpoint.Config.load(file.toString()));
+        assertTrue(ex.getMessage().contains("More than"), ex.getMessage());
+    }
+
+    @Test
+    public void testUsers() throws Exception
+    {
+        final InetAddress a = InetAddress.getByName("10.0.0.1"),
+                          b = InetAddress.getByName("10.0.0.2"),
+                          c = InetAddress.getByName("10.0.0.3");
+        InetAddress[] users = Endpoint.addUser(null, a);
+        users = Endpoint.addUser(users, b);
+        assertSame(users, Endpoint.addUser(users, a));
+
+        // Only connected hosts that searched for the PV
+        assertEquals(List.of(b), Endpoint.getUsers(users, Set.of(b, c)));
+        assertEquals(List.of(), Endpoint.getUsers(null, Set.of(a, b, c)));
+
+        // Too many hosts: Assume all connected hosts use the PV
+        for (int i=0; i<100; ++i)
+            users = Endpoint.addUser(users, InetAddress.getByName("10.0.1." + i));
+        assertEquals(Set.of(a, c), Set.copyOf(Endpoint.getUsers(users, Set.of(a, c))));
+    }
+
+    /** @param udp_port UDP port of endpoint
+     *  @param name PV name
+     *  @return Data read from endpoint, <code>null</code> if PV is not found there
+     */
+    private static PVAStructure read(final int udp_port, final String name) throws Exception
+    {
+        final String orig_list = PVASettings.EPICS_PVA_ADDR_LIST;
+        final boolean orig_auto = PVASettings.EPICS_PVA_AUTO_ADDR_LIST;
+        final PVAClient client;
+        try
+        {
+            PVASettings.EPICS_PVA_ADDR_LIST = "127.0.0.1:" + udp_port;
+            PVASettings.EPICS_PVA_AUTO_ADDR_LIST = false;
+            client = new PVAClient();
+        }
+        finally
+        {
+            PVASettings.EPICS_PVA_ADDR_LIST = orig_list;
+            PVASettings.EPICS_PVA_AUTO_ADDR_LIST = orig_auto;
+        }
+        try
+        {
+            final PVAChannel channel = client.getChannel(name);
+            try
+            {
+                channel.connect().get(3, TimeUnit.SECONDS);
+            }
+            catch (TimeoutException ex)
+            {
+                return null;
+            }
+            return channel.read("").get(3, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testLoopback() throws Exception
+    {
+        // Same as demo/endpoints.properties, but with ephemeral ports
+        final int ops_udp = TestProxy.getFreeUDPPort(),
+                  lab_udp = TestProxy.getFreeUDPPort();
+        final Path file = dir.resolve("endpoints.properties");
+        Files.writeString(file,
+                          "endpoints=ops,lab\n" +
+                          "ops.prefix=ops:proxy:\n" +
+                          "ops.pvlist=demo/pvaify.pvlist\n" +
+                          "ops.acf=demo/pvaify.acf\n" +
+                          "ops.intf_addr_list=127.0.0.1\n" +
+                          "ops.broadcast_port=" + ops_udp + "\n" +
+                          "ops.server_port=" + TestProxy.getFreeTCPPort() + "\n" +
+                          "ops.tls_port=" + TestProxy.getFreeTCPPort() + "\n" +
+                          "lab.prefix=lab:proxy:\n" +
+                          "lab.pvlist=demo/pvaify.pvlist\n" +
+                          "lab.intf_addr_list=127.0.0.1\n" +
+                          "lab.broadcast_port=" + lab_udp + "\n" +
+                          "lab.server_port=" + TestProxy.getFreeTCPPort() + "\n" +
+                          "lab.tls_port=" + TestProxy.getFreeTCPPort() + "\n");
+
+        final String orig_intf = PVASettings.EPICS_PVAS_INTF_ADDR_LIST;
+        final int orig_broadcast = PVASettings.EPICS_PVAS_BROADCAST_PORT,
+                  orig_server = PVASettings.EPICS_PVA_SERVER_PORT;
+        final Proxy proxy = new Proxy(Endpoint.Config.load(file.toString()));
+        try
+        {
+            // Creating the endpoint servers leaves the global settings unchanged
+            assertEquals(orig_intf, PVASettings.EPICS_PVAS_INTF_ADDR_LIST);
+            assertEquals(orig_broadcast, PVASettings.EPICS_PVAS_BROADCAST_PORT);
+            assertEquals(orig_server, PVASettings.EPICS_PVA_SERVER_PORT);
+
+            // Each endpoint serves its own status PVs, but not those of the other
+            assertNotNull(read(ops_udp, "ops:proxy:pvtotal"));
+            assertNotNull(read(lab_udp, "lab:proxy:pvtotal"));
+            assertNull(read(ops_udp, "lab:proxy:pvtotal"));
+            assertNull(read(lab_udp, "ops:proxy:pvtotal"));
+        }
+        finally
+        {
+            proxy.close();
+        }
+    }
+}
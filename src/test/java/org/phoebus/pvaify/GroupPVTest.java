@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStructure;
+import org.epics.util.array.ArrayDouble;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** {@link GroupPV} configuration and combination of members
+ *  @author agent
+ */
+public class GroupPVTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDemo() throws Exception
+    {
+        final List<GroupPV.Config> configs = GroupPV.load("demo/groups.txt");
+        assertTrue(configs.size() >= 2);
+
+        final GroupPV.Config group = configs.get(0);
+        assertEquals("demo:group", group.name());
+        assertFalse(group.aligned());
+        // Fields in order of the file
+        assertEquals(List.of("counter", "flag", "text"), List.copyOf(group.fields().keySet()));
+        assertEquals("demo:ai1", group.fields().get("counter"));
+
+        assertTrue(configs.get(1).aligned());
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final Path file = dir.resolve("groups.txt");
+        Files.writeString(file,
+                          "# Comment\n" +
+                          "\n" +
+                          "GROUP a\n" +
+                          "  x  pv:x\n" +
+                          "  y  pv:y\n" +
+                          "GROUP b ALIGNED\n" +
+                          "\tz\tpv:z\n");
+        final List<GroupPV.Config> configs = GroupPV.load(file.toString());
+        assertEquals(2, configs.size());
+        assertEquals(new GroupPV.Config("a", false, Map.of("x", "pv:x", "y", "pv:y")), configs.get(0));
+        assertEquals(new GroupPV.Config("b", true, Map.of("z", "pv:z")), configs.get(1));
+    }
+
+    /** @param content File content
+     *  @return Error message from loading the content
+     */
+    private String getError(final String content) throws Exception
+    {
+        final Path file = dir.resolve("bad.txt");
+        Files.writeString(file, content);
+        final Exception ex = assertThrows(Exception.class, () -> GroupPV.load(file.toString()));
+        return ex.getMessage();
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        assertTrue(getError("x pv:x\n").contains("line 1: Missing 'GROUP name'"));
+        assertTrue(getError("GROUP\n").contains("line 1: Expected 'GROUP name [ALIGNED]'"));
+        assertTrue(getError("GROUP a FAST\n").contains("line 1: Expected 'GROUP name [ALIGNED]'"));
+        assertTrue(getError("GROUP a\n x\n").contains("line 2: Expected 'field PV'"));
+        assertTrue(getError("GROUP a\n x pv:x\n x pv:y\n").contains("line 3: Duplicate field x"));
+        assertTrue(getError("GROUP a\nGROUP b\n x pv:x\n").contains("Group a has no fields"));
+    }
+
+    /** @param aligned Aligned group?
+     *  @return Configuration for group with fields x and y
+     */
+    private static GroupPV.Config createConfig(final boolean aligned)
+    {
+        final Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("x", "loc://group_test_x");
+        fields.put("y", "loc://group_test_y");
+        return new GroupPV.Config("group_test", aligned, fields);
+    }
+
+    /** @param value Value
+     *  @param seconds Time stamp [epoch seconds]
+     *  @return {@link VDouble}
+     */
+    private static VDouble createValue(final double value, final long seconds)
+    {
+        return VDouble.of(value, Alarm.none(), Time.of(Instant.ofEpochSecond(seconds)), Display.none());
+    }
+
+    /** @param data Group data
+     *  @param field Field name
+     *  @return Value of the field
+     */
+    private static double getValue(final PVAStructure data, final String field)
+    {
+        final PVAStructure member = data.get(field);
+        return ((PVADouble) member.get("value")).get();
+    }
+
+    @Test
+    public void testCombine() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("group", "group:", null)));
+        final GroupPV group = new GroupPV(proxy, createConfig(false));
+        try
+        {
+            // Wait for a value of every member
+            group.onMemberUpdate(0, createValue(1.0, 1000));
+            group.process(System.currentTimeMillis());
+            assertNull(group.getData());
+
+            group.onMemberUpdate(1, VString.of("Hello", Alarm.none(), Time.of(Instant.ofEpochSecond(1001))));
+            group.process(System.currentTimeMillis());
+            final PVAStructure data = group.getData();
+            assertNotNull(data);
+            assertEquals(1.0, getValue(data, "x"));
+            final PVAStructure y = data.get("y");
+            assertEquals("Hello", ((PVAString) y.get("value")).get());
+
+            // Updates of a member are combined, the data is updated in place
+            group.onMemberUpdate(0, createValue(2.0, 1002));
+            group.onMemberUpdate(0, createValue(3.0, 1003));
+            group.process(System.currentTimeMillis());
+            assertSame(data, group.getData());
+            assertEquals(3.0, getValue(data, "x"));
+            assertEquals("Hello", ((PVAString) y.get("value")).get());
+        }
+        finally
+        {
+            group.close();
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void testAligned() throws Exception
+    {
+        final int orig_align = ProxyPreferences.group_align_ms;
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("group", "group:", null)));
+        final GroupPV group = new GroupPV(proxy, createConfig(true));
+        try
+        {
+            ProxyPreferences.group_align_ms = 60000;
+            group.onMemberUpdate(0, createValue(1.0, 1000));
+            group.onMemberUpdate(1, createValue(2.0, 1000));
+            group.process(System.currentTimeMillis());
+            final PVAStructure data = group.getData();
+            assertNotNull(data);
+
+            // Wait for members to have the same time stamp ..
+            group.onMemberUpdate(0, createValue(3.0, 1001));
+            group.process(System.currentTimeMillis());
+            assertEquals(1.0, getValue(data, "x"));
+            group.onMemberUpdate(1, createValue(4.0, 1001));
+            group.process(System.currentTimeMillis());
+            assertEquals(3.0, getValue(data, "x"));
+            assertEquals(4.0, getValue(data, "y"));
+
+            // .. but at most group_align_ms
+            group.onMemberUpdate(0, createValue(5.0, 1002));
+            group.process(System.currentTimeMillis());
+            assertEquals(3.0, getValue(data, "x"));
+            group.process(System.currentTimeMillis() + ProxyPreferences.group_align_ms);
+            assertEquals(5.0, getValue(data, "x"));
+            assertEquals(4.0, getValue(data, "y"));
+        }
+        finally
+        {
+            ProxyPreferences.group_align_ms = orig_align;
+            group.close();
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void testTypeChange() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("group", "group:", null)));
+        final GroupPV group = new GroupPV(proxy, createConfig(false));
+        try
+        {
+            group.onMemberUpdate(0, createValue(1.0, 1000));
+            group.onMemberUpdate(1, createValue(2.0, 1000));
+            group.process(System.currentTimeMillis());
+            final PVAStructure data = group.getData();
+            assertNotNull(data);
+
+            // Member turns into an array: Group is re-created
+            group.onMemberUpdate(0, VNumberArray.of(ArrayDouble.of(1, 2, 3), Alarm.none(),
+                                                    Time.of(Instant.ofEpochSecond(1001)), Display.none()));
+            group.process(System.currentTimeMillis());
+            final PVAStructure changed = group.getData();
+            assertNotSame(data, changed);
+            final PVAStructure x = changed.get("x");
+            assertEquals(3, ((PVADoubleArray) x.get("value")).get().length);
+            assertEquals(2.0, getValue(changed, "y"));
+        }
+        finally
+        {
+            group.close();
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void testOpenAndPurge() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("group", "group:", null)));
+        final GroupPV group = new GroupPV(proxy, createConfig(false));
+        try
+        {
+            // Members are opened on the first search
+            group.process(System.currentTimeMillis());
+            assertFalse(group.isOpen());
+            group.request(proxy.endpoints.get(0), InetAddress.getLoopbackAddress());
+            group.process(System.currentTimeMillis());
+            assertTrue(group.isOpen());
+            assertTrue(group.getMemoryBytes() > 0);
+
+            // Closed once unused ..
+            final long later = System.currentTimeMillis() + Math.round(ProxyPreferences.unused_pv_purge_sec * 1000) + 1000;
+            assertTrue(group.getUnusedSecs(later) > ProxyPreferences.unused_pv_purge_sec);
+            group.purge();
+            assertFalse(group.isOpen());
+            assertNull(group.getData());
+            assertFalse(group.isRequested(proxy.endpoints.get(0)));
+
+            // .. and re-opened by the next search
+            group.request(proxy.endpoints.get(0), InetAddress.getLoopbackAddress());
+            group.process(System.currentTimeMillis());
+            assertTrue(group.isOpen());
+        }
+        finally
+        {
+            group.close();
+            proxy.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** {@link MetricHistory} ring buffer
+ *  @author agent
+ */
+public class MetricHistoryTest
+{
+    @Test
+    public void testEmpty()
+    {
+        final MetricHistory history = new MetricHistory(2, 5);
+        final MetricHistory.Samples samples = history.get(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(0, samples.seconds().length);
+        assertEquals(2, samples.values().length);
+        assertEquals(0, samples.values()[0].length);
+    }
+
+    @Test
+    public void testAdd()
+    {
+        final MetricHistory history = new MetricHistory(2, 5);
+        for (int i=1; i<=3; ++i)
+            history.add(100 + i, i, 10 * i);
+
+        final MetricHistory.Samples samples = history.get(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 101, 102, 103 }, samples.seconds());
+        assertArrayEquals(new double[] { 1, 2, 3 }, samples.values()[0]);
+        assertArrayEquals(new double[] { 10, 20, 30 }, samples.values()[1]);
+    }
+
+    @Test
+    public void testWrap()
+    {
+        final MetricHistory history = new MetricHistory(1, 5);
+        for (int i=1; i<=12; ++i)
+            history.add(100 + i, i);
+
+        // Only the last 5 are kept, oldest first
+        final MetricHistory.Samples samples = history.get(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 108, 109, 110, 111, 112 }, samples.seconds());
+        assertArrayEquals(new double[] { 8, 9, 10, 11, 12 }, samples.values()[0]);
+    }
+
+    @Test
+    public void testRange()
+    {
+        final MetricHistory history = new MetricHistory(1, 5);
+        for (int i=1; i<=7; ++i)
+            history.add(100 + i, i);
+
+        // Start and end are inclusive
+        MetricHistory.Samples samples = history.get(104, 106);
+        assertArrayEquals(new long[] { 104, 105, 106 }, samples.seconds());
+        assertArrayEquals(new double[] { 4, 5, 6 }, samples.values()[0]);
+
+        // Range before the oldest kept sample
+        samples = history.get(100, 102);
+        assertEquals(0, samples.seconds().length);
+
+        samples = history.get(106, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 106, 107 }, samples.seconds());
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        // Size 0 keeps nothing
+        final MetricHistory history = new MetricHistory(2, 0);
+        history.add(100, 1, 2);
+        assertEquals(0, history.get(Long.MIN_VALUE, Long.MAX_VALUE).seconds().length);
+    }
+}
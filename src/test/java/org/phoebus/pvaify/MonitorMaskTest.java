@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.aps.jca.Monitor;
+
+/** {@link MonitorMask} rules
+ *  @author agent
+ */
+public class MonitorMaskTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDemo() throws Exception
+    {
+        final List<MonitorMask.Rule> rules = MonitorMask.load("demo/pvaify.masks");
+        assertEquals(Monitor.LOG | Monitor.ALARM, MonitorMask.forPV(rules, "demo:ai1"));
+        assertEquals(Monitor.ALARM, MonitorMask.forPV(rules, "demo:bool"));
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final Path file = dir.resolve("test.masks");
+        Files.writeString(file,
+                          "# Comment\n" +
+                          "\n" +
+                          "wave:.*      PROPERTY\n" +
+                          "pv:a         ARCHIVE,ALARM\n" +
+                          "pv:.*        VALUE,ALARM\n");
+        final List<MonitorMask.Rule> rules = MonitorMask.load(file.toString());
+        assertEquals(3, rules.size());
+
+        assertEquals(Monitor.PROPERTY, MonitorMask.forPV(rules, "wave:1"));
+        // ARCHIVE subscribes with DBE_LOG, the IOC applies ADEL
+        assertEquals(Monitor.LOG | Monitor.ALARM, MonitorMask.forPV(rules, "pv:a"));
+        // First matching rule applies
+        assertEquals(Monitor.VALUE | Monitor.ALARM, MonitorMask.forPV(rules, "pv:b"));
+        // Pattern must match the complete name
+        assertEquals(Monitor.VALUE | Monitor.ALARM, MonitorMask.forPV(rules, "pv:ab"));
+        assertEquals(0, MonitorMask.forPV(rules, "xpv:a"));
+        // No rule: Use default mask
+        assertEquals(0, MonitorMask.forPV(rules, "other"));
+        assertEquals(0, MonitorMask.forPV(List.of(), "pv:a"));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final Path file = dir.resolve("bad.masks");
+
+        Files.writeString(file, "pv:a\n");
+        Exception ex = assertThrows(Exception.class, () -> MonitorMask.load(file.toString()));
+        assertTrue(ex.getMessage().contains("line 1"));
+
+        Files.writeString(file, "# Comment\npv:a  VALUE,BOGUS\n");
+        ex = assertThrows(Exception.class, () -> MonitorMask.load(file.toString()));
+        assertTrue(ex.getMessage().contains("line 2"));
+        assertTrue(ex.getMessage().contains("BOGUS"));
+
+        // Deadband is no longer configured in the file
+        Files.writeString(file, "pv:a  ARCHIVE  2\n");
+        ex = assertThrows(Exception.class, () -> MonitorMask.load(file.toString()));
+        assertTrue(ex.getMessage().contains("ADEL"));
+    }
+}
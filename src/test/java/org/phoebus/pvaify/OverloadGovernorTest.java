@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link OverloadGovernor} levels
+ *  @author agent
+ */
+public class OverloadGovernorTest
+{
+    private static final int PERIOD = 100;
+
+    private int orig_period, orig_max_level;
+
+    @BeforeEach
+    public void setup()
+    {
+        TestProxy.initLogger();
+        orig_period = ProxyPreferences.main_loop_ms;
+        orig_max_level = ProxyPreferences.max_shedding_level;
+        ProxyPreferences.main_loop_ms = PERIOD;
+        ProxyPreferences.max_shedding_level = 3;
+    }
+
+    @AfterEach
+    public void restore()
+    {
+        ProxyPreferences.main_loop_ms = orig_period;
+        ProxyPreferences.max_shedding_level = orig_max_level;
+    }
+
+    @Test
+    public void testRaiseAndLower()
+    {
+        final OverloadGovernor governor = new OverloadGovernor();
+        long now = 10000;
+        assertEquals(0, governor.getLevel());
+        assertEquals(PERIOD, governor.getLoopPeriod());
+        assertEquals(0, governor.getArrayThrottle());
+        assertFalse(governor.isDeferringNewPVs());
+
+        // Lag beyond the period raises the level
+        governor.update(PERIOD, 0, now);
+        assertEquals(1, governor.getLevel());
+        assertEquals(2 * PERIOD, governor.getLoopPeriod());
+        assertEquals(1000, governor.getArrayThrottle());
+
+        // .. but not again within the hold-off
+        governor.update(0, 5 * PERIOD, now + 500);
+        assertEquals(1, governor.getLevel());
+
+        // Processing time beyond the period also raises the level
+        now += 1000;
+        governor.update(0, PERIOD, now);
+        assertEquals(2, governor.getLevel());
+        assertEquals(2000, governor.getArrayThrottle());
+        assertFalse(governor.isDeferringNewPVs());
+
+        now += 1000;
+        governor.update(PERIOD, PERIOD, now);
+        assertEquals(3, governor.getLevel());
+        assertEquals(4 * PERIOD, governor.getLoopPeriod());
+        assertTrue(governor.isDeferringNewPVs());
+
+        // Limited to max_shedding_level
+        now += 1000;
+        governor.update(10 * PERIOD, 0, now);
+        assertEquals(3, governor.getLevel());
+
+        // 49 calm loops are not enough to lower the level
+        for (int i=0; i<49; ++i)
+            governor.update(0, 0, ++now);
+        assertEquals(3, governor.getLevel());
+        // A loop that's neither calm nor overloaded restarts the count
+        governor.update(PERIOD/2, 0, ++now);
+        for (int i=0; i<49; ++i)
+            governor.update(0, 0, ++now);
+        assertEquals(3, governor.getLevel());
+        governor.update(0, 0, ++now);
+        assertEquals(2, governor.getLevel());
+        assertFalse(governor.isDeferringNewPVs());
+
+        // Lower all the way
+        for (int i=0; i<100; ++i)
+            governor.update(0, 0, ++now);
+        assertEquals(0, governor.getLevel());
+        for (int i=0; i<100; ++i)
+            governor.update(0, 0, ++now);
+        assertEquals(0, governor.getLevel());
+        assertEquals(PERIOD, governor.getLoopPeriod());
+    }
+
+    @Test
+    public void testMaxLag()
+    {
+        final OverloadGovernor governor = new OverloadGovernor();
+        governor.update(5, 0, 1);
+        governor.update(42, 0, 2);
+        governor.update(7, 0, 3);
+        assertEquals(42, governor.getMaxLag());
+        assertEquals(0, governor.getMaxLag());
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        ProxyPreferences.max_shedding_level = 0;
+        final OverloadGovernor governor = new OverloadGovernor();
+        governor.update(10 * PERIOD, 10 * PERIOD, 10000);
+        assertEquals(0, governor.getLevel());
+        assertEquals(0, governor.getArrayThrottle());
+        assertEquals(10 * PERIOD, governor.getMaxLag());
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+/** Measure the heap used per {@link ProxiedPV}
+ *
+ *  Reports the retained bytes per idle PV,
+ *  and per PV with scalar server data,
+ *  not counting the PV name nor the PV pool or PVA server.
+ *
+ *  <p>JOL walks the object graph of the proxy before and after adding PVs,
+ *  so the result does not depend on garbage collection.
+ *  The idle size is the basis for {@link ProxiedPV#BASE_BYTES}.
+ *
+ *  @author agent
+ */
+public class ProxiedPVFootprintTest
+{
+    static
+    {
+        // Allows JOL to get the field offsets of records
+        System.setProperty("jol.magicFieldOffset", "true");
+    }
+
+    /** Number of PVs to create */
+    private static final int N = 1000;
+
+    /** Target for a PV with scalar data [bytes] */
+    private static final long SCALAR_TARGET = 4096;
+
+    /** @param proxy Proxy, including its PVs
+     *  @param names PV names
+     *  @return Bytes reachable from proxy, not counting the names
+     */
+    private static long getSize(final Proxy proxy, final String[] names)
+    {
+        return GraphLayout.parseInstance(proxy).totalSize() - GraphLayout.parseInstance((Object[]) names).totalSize();
+    }
+
+    @Test
+    public void testFootprint() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("footprint", "footprint:", null)));
+        try
+        {
+            final String[] names = new String[N];
+            for (int i=0; i<N; ++i)
+                names[i] = String.format("footprint:pv%06d", i).intern();
+            final List<ProxiedPV> pvs = new ArrayList<>(N);
+
+            final long start = getSize(proxy, new String[0]);
+            for (int i=0; i<N; ++i)
+                pvs.add(new ProxiedPV(proxy, names[i]));
+            final long idle = (getSize(proxy, names) - start) / N;
+
+            final VDouble value = VDouble.of(3.14, Alarm.none(), Time.now(), Display.none());
+            for (ProxiedPV pv : pvs)
+                pv.restore(value);
+            final long scalar = (getSize(proxy, names) - start) / N;
+
+            System.out.println("Idle ProxiedPV:             " + idle + " bytes");
+            System.out.println("ProxiedPV with scalar data: " + scalar + " bytes");
+            assertTrue(idle <= ProxiedPV.BASE_BYTES, "Idle PV uses " + idle + " bytes, more than BASE_BYTES");
+            assertTrue(scalar < SCALAR_TARGET, "Scalar PV uses " + scalar + " bytes");
+
+            for (ProxiedPV pv : pvs)
+                pv.close();
+        }
+        finally
+        {
+            proxy.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+
+/** Check that readers of a {@link ProxiedPV}'s server data
+ *  never see a value and time stamp from different updates
+ *  while the data is updated in place
+ *
+ *  @author agent
+ */
+public class ProxiedPVTornReadTest
+{
+    /** Number of updates */
+    private static final int UPDATES = 1000000;
+
+    /** Number of reader threads */
+    private static final int READERS = 4;
+
+    /** @param i Update number
+     *  @return Value where value and time stamp seconds are both i
+     */
+    private static VDouble createValue(final int i)
+    {
+        return VDouble.of((double) i, Alarm.none(), Time.of(Instant.ofEpochSecond(i)), Display.none());
+    }
+
+    @Test
+    public void testTornReads() throws Exception
+    {
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("torn", "torn:", null)));
+        try
+        {
+            final ProxiedPV pv = new ProxiedPV(proxy, "torn:value");
+            pv.restore(createValue(0));
+            // Pretend that the client side has taken over
+            pv.setState(ProxiedPVState.State.Idle);
+
+            final AtomicBoolean run = new AtomicBoolean(true);
+            final AtomicInteger reads = new AtomicInteger();
+            final AtomicReference<String> error = new AtomicReference<>();
+            final Thread[] readers = new Thread[READERS];
+            for (int r=0; r<READERS; ++r)
+            {
+                readers[r] = new Thread(() ->
+                {
+                    while (run.get())
+                    {
+                        final VType value = pv.getSnapshotValue();
+                        if (! (value instanceof VDouble dbl))
+                        {
+                            error.compareAndSet(null, "Cannot read " + value);
+                            return;
+                        }
+                        final long seconds = Time.timeOf(dbl).getTimestamp().getEpochSecond();
+                        if (dbl.getValue().longValue() != seconds)
+                        {
+                            error.compareAndSet(null, "Torn read: value " + dbl.getValue() + " with time stamp " + seconds);
+                            return;
+                        }
+                        reads.incrementAndGet();
+                    }
+                }, "Reader" + r);
+                readers[r].start();
+            }
+
+            for (int i=1; i<=UPDATES  &&  error.get() == null; ++i)
+                if (pv.prepareUpdate(createValue(i)))
+                    pv.commitUpdate();
+            run.set(false);
+            for (Thread reader : readers)
+                reader.join();
+
+            System.out.println(UPDATES + " updates, " + reads.get() + " reads");
+            assertEquals(null, error.get());
+            assertTrue(reads.get() > 0);
+            pv.close();
+        }
+        finally
+        {
+            proxy.close();
+        }
+    }
+}
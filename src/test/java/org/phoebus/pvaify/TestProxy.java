@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.logging.Logger;
+
+/** Helper for tests that run a {@link Proxy} on the loopback interface
+ *  @author agent
+ */
+class TestProxy
+{
+    static
+    {
+        initLogger();
+    }
+
+    /** Set {@link Proxy#logger} for tests that use classes without a {@link Proxy} */
+    static void initLogger()
+    {
+        if (Proxy.logger == null)
+            Proxy.logger = Logger.getLogger(Proxy.class.getPackageName());
+    }
+
+    /** @return Free TCP port on loopback
+     *  @throws Exception on error
+     */
+    static int getFreeTCPPort() throws Exception
+    {
+        try
+        (
+            final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())
+        )
+        {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** @return Free UDP port on loopback
+     *  @throws Exception on error
+     */
+    static int getFreeUDPPort() throws Exception
+    {
+        try
+        (
+            final DatagramSocket socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+        )
+        {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** @param name Endpoint name
+     *  @param prefix Status PV prefix
+     *  @param pvlist_file PV list file or <code>null</code>
+     *  @return Endpoint on loopback with its own ephemeral UDP, TCP and TLS ports
+     *  @throws Exception on error
+     */
+    static Endpoint.Config createConfig(final String name, final String prefix, final String pvlist_file) throws Exception
+    {
+        return new Endpoint.Config(name, prefix, pvlist_file, null,
+                                   InetAddress.getLoopbackAddress().getHostAddress(),
+                                   getFreeUDPPort(), getFreeTCPPort(), getFreeTCPPort());
+    }
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+
+/** Compare per-PV RxJava <code>throttleLatest</code>
+ *  with the central throttle of the {@link ClientUpdateCache}
+ *
+ *  A producer thread sends updates for random {@link ProxiedPV}s,
+ *  either through a per-PV RxJava throttle as the proxy used to do,
+ *  or through the {@link ClientUpdateCache} handled by a main loop like that of the {@link Proxy}.
+ *  Reports process CPU load and the lateness of sent updates,
+ *  i.e. how long after the time when the throttle allowed sending
+ *  the update was actually sent.
+ *
+ *  <p>Tagged as benchmark, so it's not part of the default test run.
+ *  Run with <code>mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=ThrottleBenchmarkTest</code>,
+ *  adding <code>-Dthrottle_benchmark_sec=30</code> for a longer run.
+ *
+ *  @author agent
+ */
+@Tag("benchmark")
+public class ThrottleBenchmarkTest
+{
+    private static final int PVS = 50000;
+    private static final int UPDATES_PER_MS = 200;
+    private static final int THROTTLE_MS = 500;
+    private static final int LOOP_MS = 100;
+    private static final int SECONDS = Integer.getInteger("throttle_benchmark_sec", 5);
+
+    /** Start of benchmark, values hold the emit time relative to this [nanos] */
+    private static final long START = System.nanoTime();
+
+    /** Receiver of throttled updates */
+    private static class Receiver
+    {
+        /** Last time each PV was sent [nanos] */
+        private final long[] last_sent = new long[PVS];
+        final LongAdder sent = new LongAdder();
+        final LongAdder lateness = new LongAdder();
+        final LongAccumulator max_lateness = new LongAccumulator(Math::max, 0);
+
+        /** @param pv PV index
+         *  @param emitted Time when the sent value was emitted [nanos]
+         */
+        void receive(final int pv, final long emitted)
+        {
+            final long now = System.nanoTime();
+            long allowed = emitted;
+            if (last_sent[pv] != 0)
+                allowed = Math.max(allowed, last_sent[pv] + TimeUnit.MILLISECONDS.toNanos(THROTTLE_MS));
+            last_sent[pv] = now;
+            final long late = Math.max(0, now - allowed);
+            sent.increment();
+            lateness.add(late);
+            max_lateness.accumulate(late);
+        }
+    }
+
+    /** {@link ProxiedPV} that reports each update it sends out to the {@link Receiver} */
+    private static class BenchmarkPV extends ProxiedPV
+    {
+        private final int index;
+        private final Receiver receiver;
+
+        /** Emit time of the prepared value [nanos] */
+        private volatile long prepared;
+
+        BenchmarkPV(final Proxy proxy, final int index, final Receiver receiver) throws Exception
+        {
+            super(proxy, String.format("bench:pv%05d", index));
+            this.index = index;
+            this.receiver = receiver;
+            // Pretend that the client side has taken over
+            restore(createValue(START));
+            setState(ProxiedPVState.State.Idle);
+            if (super.prepareUpdate(createValue(START)))
+                super.commitUpdate();
+        }
+
+        @Override
+        boolean prepareUpdate(final VType value)
+        {
+            prepared = START + ((VDouble) value).getValue().longValue();
+            return super.prepareUpdate(value);
+        }
+
+        @Override
+        void commitUpdate()
+        {
+            super.commitUpdate();
+            receiver.receive(index, prepared);
+        }
+    }
+
+    /** @param emitted Emit time [nanos]
+     *  @return Value that holds the emit time
+     */
+    private static VDouble createValue(final long emitted)
+    {
+        return VDouble.of((double) (emitted - START), Alarm.none(), Time.now(), Display.none());
+    }
+
+    /** @return Process CPU time [nanos] */
+    private static long getCPUTime()
+    {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /** Emit updates for random PVs until stopped
+     *  @param emit Called with PV index and value
+     *  @param run Run flag
+     */
+    private static void produce(final BiConsumer<Integer, VType> emit, final AtomicBoolean run) throws Exception
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (run.get())
+        {
+            for (int i=0; i<UPDATES_PER_MS; ++i)
+                emit.accept(random.nextInt(PVS), createValue(System.nanoTime()));
+            Thread.sleep(1);
+        }
+    }
+
+    /** Run producer, measure and report
+     *  @param title Title
+     *  @param emit Emitter
+     *  @param receiver Receiver
+     *  @param run Run flag, cleared when done
+     *  @return Report
+     */
+    private static String measure(final String title, final BiConsumer<Integer, VType> emit,
+                                  final Receiver receiver, final AtomicBoolean run) throws Exception
+    {
+        final Thread producer = new Thread(() ->
+        {
+            try
+            {
+                produce(emit, run);
+            }
+            catch (Exception ex)
+            {
+                ex.printStackTrace();
+            }
+        }, "Producer");
+        final long cpu = getCPUTime(), start = System.nanoTime();
+        producer.start();
+        Thread.sleep(SECONDS * 1000L);
+        run.set(false);
+        producer.join();
+        final double secs = (System.nanoTime() - start) * 1e-9;
+        final double load = (getCPUTime() - cpu) * 1e-9 / secs;
+        final long sent = receiver.sent.sum();
+        final String report = String.format("%-20s: %8.0f updates/s sent, CPU %5.1f cores, lateness avg %6.2f ms, max %6.1f ms",
+                                            title,
+                                            sent / secs,
+                                            load,
+                                            sent > 0 ? receiver.lateness.sum() * 1e-6 / sent : 0.0,
+                                            receiver.max_lateness.get() * 1e-6);
+        System.out.println(report);
+        assertTrue(sent > 0, title + " sent nothing");
+        return report;
+    }
+
+    /** @param proxy Proxy
+     *  @param receiver Receiver
+     *  @return PVs
+     */
+    private static BenchmarkPV[] createPVs(final Proxy proxy, final Receiver receiver) throws Exception
+    {
+        final BenchmarkPV[] pvs = new BenchmarkPV[PVS];
+        for (int i=0; i<PVS; ++i)
+            pvs[i] = new BenchmarkPV(proxy, i, receiver);
+        // Count only updates sent while measuring
+        receiver.sent.reset();
+        receiver.lateness.reset();
+        receiver.max_lateness.reset();
+        return pvs;
+    }
+
+    /** @param pvs PVs to close */
+    private static void close(final ProxiedPV[] pvs)
+    {
+        for (ProxiedPV pv : pvs)
+            pv.close();
+    }
+
+    /** @param proxy Proxy
+     *  @return Report
+     */
+    private static String measureRx(final Proxy proxy) throws Exception
+    {
+        final Receiver receiver = new Receiver();
+        final BenchmarkPV[] pvs = createPVs(proxy, receiver);
+        @SuppressWarnings("unchecked")
+        final PublishProcessor<VType>[] processors = new PublishProcessor[PVS];
+        final Disposable[] subs = new Disposable[PVS];
+        for (int i=0; i<PVS; ++i)
+        {
+            final BenchmarkPV pv = pvs[i];
+            processors[i] = PublishProcessor.create();
+            subs[i] = processors[i].throttleLatest(THROTTLE_MS, TimeUnit.MILLISECONDS)
+                                   .subscribe(value ->
+                                   {
+                                       if (pv.prepareUpdate(value))
+                                           pv.commitUpdate();
+                                   });
+        }
+        try
+        {
+            return measure("Rx throttleLatest", (pv, value) -> processors[pv].onNext(value), receiver, new AtomicBoolean(true));
+        }
+        finally
+        {
+            for (Disposable sub : subs)
+                sub.dispose();
+            close(pvs);
+        }
+    }
+
+    /** @param proxy Proxy
+     *  @return Report
+     */
+    private static String measureCentral(final Proxy proxy) throws Exception
+    {
+        final Receiver receiver = new Receiver();
+        final BenchmarkPV[] pvs = createPVs(proxy, receiver);
+        final ClientUpdateCache cache = new ClientUpdateCache();
+        final AtomicBoolean run = new AtomicBoolean(true);
+        // Same schedule as the main loop of the Proxy
+        final Thread main_loop = new Thread(() ->
+        {
+            try
+            {
+                long scheduled = System.currentTimeMillis() + LOOP_MS;
+                while (run.get())
+                {
+                    cache.processPriority(scheduled);
+                    cache.process(0);
+                    scheduled += LOOP_MS;
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                // Done
+            }
+        }, "MainLoop");
+        main_loop.start();
+        try
+        {
+            return measure("Central throttle", (pv, value) -> cache.add(pvs[pv], value), receiver, run);
+        }
+        finally
+        {
+            main_loop.join();
+            close(pvs);
+        }
+    }
+
+    @Test
+    public void testBenchmark() throws Exception
+    {
+        final int orig_throttle = ProxyPreferences.client_throttle_ms;
+        final Proxy proxy = new Proxy(List.of(TestProxy.createConfig("bench", "bench:", null)));
+        try
+        {
+            ProxyPreferences.client_throttle_ms = THROTTLE_MS;
+            final String rx = measureRx(proxy);
+            final String central = measureCentral(proxy);
+            System.out.println("Throttle benchmark, " + PVS + " PVs, " + UPDATES_PER_MS + " updates/ms, throttled to " + THROTTLE_MS + " ms:");
+            System.out.println(rx);
+            System.out.println(central);
+        }
+        finally
+        {
+            ProxyPreferences.client_throttle_ms = orig_throttle;
+            proxy.close();
+        }
+    }
+}
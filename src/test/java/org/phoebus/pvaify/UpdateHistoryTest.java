@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VString;
+import org.junit.jupiter.api.Test;
+
+/** {@link UpdateHistory} ring buffer
+ *  @author agent
+ */
+public class UpdateHistoryTest
+{
+    /** @param secs Time stamp [seconds since epoch]
+     *  @return Value that equals its time stamp
+     */
+    private static VDouble createValue(final long secs)
+    {
+        return VDouble.of((double) secs, Alarm.none(), Time.of(Instant.ofEpochSecond(secs, 500)), Display.none());
+    }
+
+    @Test
+    public void testWrap()
+    {
+        final UpdateHistory history = new UpdateHistory(5);
+        UpdateHistory.Samples samples = history.get(Instant.MIN, Instant.MAX);
+        assertEquals(0, samples.values().length);
+
+        for (int i=1; i<=3; ++i)
+            history.add(createValue(i));
+        samples = history.get(Instant.MIN, Instant.MAX);
+        assertArrayEquals(new double[] { 1, 2, 3 }, samples.values());
+        assertArrayEquals(new long[] { 1, 2, 3 }, samples.seconds());
+        assertArrayEquals(new int[] { 500, 500, 500 }, samples.nanos());
+
+        // Wrap around, keeping the last 5, oldest first
+        for (int i=4; i<=12; ++i)
+            history.add(createValue(i));
+        samples = history.get(Instant.MIN, Instant.MAX);
+        assertArrayEquals(new double[] { 8, 9, 10, 11, 12 }, samples.values());
+        assertArrayEquals(new long[] { 8, 9, 10, 11, 12 }, samples.seconds());
+    }
+
+    @Test
+    public void testRange()
+    {
+        final UpdateHistory history = new UpdateHistory(5);
+        for (int i=1; i<=7; ++i)
+            history.add(createValue(i));
+
+        // Start and end are inclusive, down to the nanosecond
+        UpdateHistory.Samples samples = history.get(Instant.ofEpochSecond(4, 500), Instant.ofEpochSecond(6, 500));
+        assertArrayEquals(new double[] { 4, 5, 6 }, samples.values());
+        samples = history.get(Instant.ofEpochSecond(4, 501), Instant.ofEpochSecond(6, 499));
+        assertArrayEquals(new double[] { 5 }, samples.values());
+
+        // Range before, after and within wrapped buffer
+        assertEquals(0, history.get(Instant.MIN, Instant.ofEpochSecond(2)).values().length);
+        assertEquals(0, history.get(Instant.ofEpochSecond(8), Instant.MAX).values().length);
+        assertArrayEquals(new double[] { 6, 7 }, history.get(Instant.ofEpochSecond(6), Instant.MAX).values());
+    }
+
+    @Test
+    public void testTypes()
+    {
+        final UpdateHistory history = new UpdateHistory(5);
+        final Time time = Time.of(Instant.ofEpochSecond(10));
+        history.add(VEnum.of(2, EnumDisplay.of(List.of("a", "b", "c")),
+                             Alarm.of(AlarmSeverity.MAJOR, AlarmStatus.RECORD, "STATE"), time));
+        // Strings are not recorded
+        history.add(VString.of("text", Alarm.none(), time));
+
+        final UpdateHistory.Samples samples = history.get(Instant.MIN, Instant.MAX);
+        assertArrayEquals(new double[] { 2 }, samples.values());
+        assertArrayEquals(new short[] { (short) AlarmSeverity.MAJOR.ordinal() }, samples.severities());
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** JUnit test of {@link UpdateRecorder} and {@link UpdateReplay}
+ *  @author agent
+ */
+public class UpdateRecorderTest
+{
+    static
+    {
+        TestProxy.initLogger();
+    }
+
+    @TempDir
+    Path dir;
+
+    private static VType createValue(final double value)
+    {
+        return VDouble.of(value, Alarm.none(), Time.of(Instant.ofEpochSecond(1000, (int) value)),
+                          DataUtil.createDisplay(0, 10, "V", 2));
+    }
+
+    /** Replay file as fast as possible
+     *  @param file Recording
+     *  @param names Receives replayed names
+     *  @param values Receives replayed values
+     */
+    private static int replay(final Path file, final List<String> names, final List<VType> values)
+    {
+        final UpdateReplay replay = new UpdateReplay((name, value) ->
+        {
+            names.add(name);
+            values.add(value);
+        }, file, 0);
+        return replay.replay();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final Path file = dir.resolve("round_trip.rec");
+        final UpdateRecorder recorder = new UpdateRecorder(file, 1);
+        recorder.record("a", createValue(1));
+        recorder.record("b", VString.of("Hello", Alarm.none(), Time.of(Instant.ofEpochSecond(2000))));
+        recorder.record("a", createValue(2));
+        recorder.record("c", VNumberArray.of(ArrayDouble.of(1, 2, 3), Alarm.disconnected(),
+                                             Time.of(Instant.ofEpochSecond(3000)), DataUtil.createDisplay(0, 10, "", 0)));
+        recorder.close();
+
+        // File is trimmed to what's been written, ends with END
+        final byte[] bytes = Files.readAllBytes(file);
+        assertTrue(bytes.length < 1024 * 1024);
+        assertEquals(UpdateRecorder.MAGIC, ByteBuffer.wrap(bytes).getLong());
+        assertEquals(UpdateRecorder.END, bytes[bytes.length - 1]);
+
+        final List<String> names = new ArrayList<>();
+        final List<VType> values = new ArrayList<>();
+        assertEquals(4, replay(file, names, values));
+        assertEquals(List.of("a", "b", "a", "c"), names);
+        assertEquals(1.0, ((VDouble) values.get(0)).getValue());
+        assertEquals(Instant.ofEpochSecond(1000, 1), Time.timeOf(values.get(0)).getTimestamp());
+        assertEquals("Hello", ((VString) values.get(1)).getValue());
+        assertEquals(2.0, ((VDouble) values.get(2)).getValue());
+        final VNumberArray array = (VNumberArray) values.get(3);
+        assertEquals(3, array.getData().size());
+        assertEquals(3.0, array.getData().getDouble(2));
+        assertEquals(Alarm.disconnected().getSeverity(), Alarm.alarmOf(array).getSeverity());
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception
+    {
+        assertThrows(Exception.class, () -> new UpdateRecorder(dir.resolve("bad.rec"), 0));
+        assertThrows(Exception.class, () -> new UpdateRecorder(dir.resolve("bad.rec"), UpdateRecorder.MAX_MB + 1));
+
+        // Record 100 arrays of 100k doubles, 80 MB, into a 1 MB file
+        final Path file = dir.resolve("full.rec");
+        final UpdateRecorder recorder = new UpdateRecorder(file, 1);
+        final VType value = VNumberArray.of(ArrayDouble.of(new double[100000]), Alarm.none(),
+                                            Time.of(Instant.ofEpochSecond(1000)), DataUtil.createDisplay(0, 10, "", 0));
+        for (int i=0; i<100; ++i)
+            recorder.record("big", value);
+        recorder.close();
+
+        final long size = Files.size(file);
+        assertTrue(size <= 1024 * 1024, "File size " + size);
+
+        // Replay gets what fit into the file
+        final List<String> names = new ArrayList<>();
+        final List<VType> values = new ArrayList<>();
+        final int count = replay(file, names, values);
+        assertTrue(count > 0  &&  count < 2, "Replayed " + count);
+    }
+}
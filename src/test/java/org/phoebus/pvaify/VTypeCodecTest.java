@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pvaify;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByteArray;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloatArray;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VIntArray;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VShortArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link VTypeCodec}
+ *  @author agent
+ */
+public class VTypeCodecTest
+{
+    private static final Time time = Time.of(Instant.ofEpochSecond(1700000000, 123456789));
+    private static final Alarm alarm = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+    private static final Display display = DataUtil.createDisplay(-10.0, 10.0, "mm", 3);
+
+    /** Encode and decode value, check time stamp and alarm */
+    private static VType roundTrip(final VType value) throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        VTypeCodec.encode(buffer, value);
+        final int size = buffer.position();
+        assertTrue(size <= VTypeCodec.estimateSize(value) + 100, "Size " + size + " exceeds estimate");
+        buffer.flip();
+        final VType copy = VTypeCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+
+        assertEquals(time.getTimestamp(), Time.timeOf(copy).getTimestamp());
+        assertEquals(alarm.getSeverity(), Alarm.alarmOf(copy).getSeverity());
+        assertEquals(alarm.getStatus(), Alarm.alarmOf(copy).getStatus());
+        assertEquals(alarm.getName(), Alarm.alarmOf(copy).getName());
+        return copy;
+    }
+
+    private static void checkDisplay(final VType copy)
+    {
+        final Display copy_display = Display.displayOf(copy);
+        assertEquals("mm", copy_display.getUnit());
+        assertEquals(3, copy_display.getFormat().getMinimumFractionDigits());
+        assertEquals(-10.0, copy_display.getDisplayRange().getMinimum());
+        assertEquals(10.0, copy_display.getDisplayRange().getMaximum());
+    }
+
+    @Test
+    public void testScalars() throws Exception
+    {
+        VType copy = roundTrip(VDouble.of(3.14, alarm, time, display));
+        assertEquals(3.14, assertInstanceOf(VDouble.class, copy).getValue());
+        checkDisplay(copy);
+
+        copy = roundTrip(VDouble.of(Double.NaN, alarm, time, display));
+        assertTrue(((VDouble) copy).getValue().isNaN());
+
+        copy = roundTrip(VInt.of(-42, alarm, time, display));
+        assertEquals(-42, assertInstanceOf(VInt.class, copy).getValue());
+        checkDisplay(copy);
+
+        copy = roundTrip(VString.of("Hello, \u00B5m", alarm, time));
+        assertEquals("Hello, \u00B5m", assertInstanceOf(VString.class, copy).getValue());
+
+        copy = roundTrip(VEnum.of(1, EnumDisplay.of(List.of("Off", "On", "")), alarm, time));
+        final VEnum e = assertInstanceOf(VEnum.class, copy);
+        assertEquals(1, e.getIndex());
+        assertEquals(List.of("Off", "On", ""), e.getDisplay().getChoices());
+    }
+
+    @Test
+    public void testArrays() throws Exception
+    {
+        final double[] values = { 0.0, -1.5, 1e100, Double.NaN };
+
+        VType copy = roundTrip(VNumberArray.of(ArrayDouble.of(values), alarm, time, display));
+        assertInstanceOf(VDoubleArray.class, copy);
+        checkDisplay(copy);
+        ListNumber data = ((VNumberArray) copy).getData();
+        assertEquals(values.length, data.size());
+        for (int i=0; i<values.length; ++i)
+            assertEquals(values[i], data.getDouble(i));
+
+        copy = roundTrip(VNumberArray.of(ArrayFloat.of(1.5f, -2.5f), alarm, time, display));
+        assertInstanceOf(VFloatArray.class, copy);
+        data = ((VNumberArray) copy).getData();
+        assertEquals(2, data.size());
+        assertEquals(-2.5f, data.getFloat(1));
+
+        copy = roundTrip(VNumberArray.of(ArrayInteger.of(1, Integer.MIN_VALUE, Integer.MAX_VALUE), alarm, time, display));
+        assertInstanceOf(VIntArray.class, copy);
+        assertArrayEquals(new int[] { 1, Integer.MIN_VALUE, Integer.MAX_VALUE },
+                          ((VNumberArray) copy).getData().toArray(new int[0]));
+
+        copy = roundTrip(VNumberArray.of(ArrayShort.of((short) -1, Short.MAX_VALUE), alarm, time, display));
+        assertInstanceOf(VShortArray.class, copy);
+        assertEquals(Short.MAX_VALUE, ((VNumberArray) copy).getData().getShort(1));
+
+        copy = roundTrip(VNumberArray.of(ArrayByte.of((byte) 'H', (byte) 'i', (byte) 0), alarm, time, display));
+        assertInstanceOf(VByteArray.class, copy);
+        assertArrayEquals(new byte[] { 'H', 'i', 0 }, ((VNumberArray) copy).getData().toArray(new byte[0]));
+
+        copy = roundTrip(VNumberArray.of(ArrayDouble.of(), alarm, time, display));
+        assertEquals(0, ((VNumberArray) copy).getData().size());
+    }
+
+    @Test
+    public void testEstimate()
+    {
+        final long scalar = VTypeCodec.estimateSize(VDouble.of(3.14, alarm, time, display));
+        final long array = VTypeCodec.estimateSize(VNumberArray.of(ArrayDouble.of(new double[1000]), alarm, time, display));
+        assertEquals(scalar + 8000, array);
+        assertEquals(scalar + 1000, VTypeCodec.estimateSize(VNumberArray.of(ArrayByte.of(new byte[1000]), alarm, time, display)));
+    }
+}